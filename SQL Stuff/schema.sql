@@ -1,11 +1,13 @@
 create table Addresses
 (
-    addressID int         not null
+    addressID int auto_increment
         primary key,
     postcode  varchar(10) not null,
     houseNum  int         not null,
     roadName  varchar(30) null,
-    cityName  varchar(30) null
+    cityName  varchar(30) null,
+    constraint unique_postcode_houseNum
+        unique (postcode, houseNum)
 );
 
 create table Brands
@@ -22,11 +24,21 @@ create table Components
     price    int  null,
     name     text null,
     quantity int  null,
+    -- Stock held back for orders that have been confirmed but not yet fulfilled - quantity - reserved is available
+    reserved int  not null default 0,
+    -- Read by the app's catalogue refresh - changes to a component's Wheels/FrameSets/Handlebars row must touch this too
+    lastUpdated timestamp(3) not null default current_timestamp(3) on update current_timestamp(3),
     primary key (brandID, serial),
     constraint Components_ibfk_1
         foreign key (brandID) references Brands (brandID)
 );
 
+create index componentLastUpdated
+    on Components (lastUpdated);
+
+-- Existing databases get this column, with stock reserved for their confirmed orders, from upgrade.sql. The dummy
+-- data's Components.csv already includes the stock reserved by its confirmed orders
+
 create table Customers
 (
     customerID int auto_increment
@@ -62,6 +74,16 @@ create table Handlebars
             on delete cascade
 );
 
+create table Sequences
+(
+    name      varchar(32) not null
+        primary key,
+    nextValue bigint      not null
+);
+
+insert into Sequences (name, nextValue)
+values ('orderNumber', 0);
+
 create table Staff
 (
     staffID        int auto_increment
@@ -94,6 +116,9 @@ create table OrderComponents
     orderNumber     int not null,
     componentBrand  int not null,
     componentSerial int not null,
+    -- How many of the component go into the bike (2 for wheels), so progressing an order doesn't need to look it up.
+    -- No default, as no single value is right for every type of component
+    units           int not null,
     primary key (orderNumber, componentBrand, componentSerial),
     constraint OrderComponents_ibfk_1
         foreign key (orderNumber) references Orders (orderNumber),
@@ -101,12 +126,21 @@ create table OrderComponents
         foreign key (componentBrand, componentSerial) references Components (brandID, serial)
 );
 
+-- Existing databases get this column, filled in for their orders, from upgrade.sql
+
 create index componentBrand
     on OrderComponents (componentBrand, componentSerial);
 
 create index customerID
     on Orders (customerID);
 
+-- Used by the staff order filters - staff is already indexed by its foreign key
+create index orderStatus
+    on Orders (status, orderNumber);
+
+create index orderDate
+    on Orders (date);
+
 create table Wheels
 (
     brandID    int                                 not null,
@@ -0,0 +1,76 @@
+-- Brings a database created from an older schema.sql up to date. Safe to run more than once - every step either
+-- checks whether it's needed or recalculates its values from scratch
+
+-- Order numbers are handed out in blocks from this sequence. Orders made before it existed were numbered at random
+-- rather than from the sequence, so no range of sequence values is used yet - starting from 0 is right, and the
+-- odd clash with one of the old random numbers is retried by Order.insertOrder. Insert ignore keeps the current value
+-- if the sequence is already in use
+create table if not exists Sequences
+(
+    name      varchar(32) not null
+        primary key,
+    nextValue bigint      not null
+);
+
+insert ignore into Sequences (name, nextValue)
+values ('orderNumber', 0);
+
+-- Addresses are looked up by their natural key (postcode, houseNum) and given auto increment IDs. Older databases can
+-- have the same address more than once, so first move every customer onto the lowest ID of their address and drop
+-- the other copies, then add the unique key the upsert relies on
+update Customers C
+    inner join Addresses A on C.addressID = A.addressID
+    inner join (select postcode, houseNum, min(addressID) as keepID
+                from Addresses
+                group by postcode, houseNum
+                having count(*) > 1) D on A.postcode = D.postcode and A.houseNum = D.houseNum
+    set C.addressID = D.keepID
+    where C.addressID <> D.keepID;
+
+delete A
+    from Addresses A
+    inner join (select postcode, houseNum, min(addressID) as keepID
+                from Addresses
+                group by postcode, houseNum
+                having count(*) > 1) D on A.postcode = D.postcode and A.houseNum = D.houseNum
+    where A.addressID <> D.keepID;
+
+-- Customers.addressID references this column, so foreign key checks are off while it's changed
+set foreign_key_checks = 0;
+alter table Addresses modify addressID int not null auto_increment;
+set foreign_key_checks = 1;
+
+alter table Addresses add unique index if not exists unique_postcode_houseNum (postcode, houseNum);
+
+-- When each component row last changed, so the catalogue can fetch only the rows edited since it last looked. Existing
+-- rows get the time of the upgrade, which only means the first refresh after it reloads them
+alter table Components add column if not exists lastUpdated timestamp(3) not null default current_timestamp(3)
+    on update current_timestamp(3);
+
+create index if not exists componentLastUpdated
+    on Components (lastUpdated);
+
+-- Used by the staff order filters - staff is already indexed by its foreign key
+create index if not exists orderStatus
+    on Orders (status, orderNumber);
+
+create index if not exists orderDate
+    on Orders (date);
+
+-- Reserved stock, held back for orders that have been confirmed but not yet fulfilled. Recalculated from the orders
+-- that are confirmed now, so existing confirmed orders can still be fulfilled
+alter table Components add column if not exists reserved int not null default 0 after quantity;
+
+update Components C
+    set reserved = (select count(*) * if(exists(select 1 from Wheels W where W.brandID = C.brandID and W.serial = C.serial), 2, 1)
+                    from OrderComponents OC inner join Orders O on OC.orderNumber = O.orderNumber
+                    where O.status = 'CONFIRMED' and OC.componentBrand = C.brandID and OC.componentSerial = C.serial);
+
+-- Units per bike of each order component (2 for wheels), stored so progressing orders doesn't need to join Wheels.
+-- The default only exists while existing rows are filled in, so new rows must always say how many units they need
+alter table OrderComponents add column if not exists units int not null default 1;
+
+update OrderComponents OC inner join Wheels W on OC.componentBrand = W.brandID and OC.componentSerial = W.serial
+    set OC.units = 2;
+
+alter table OrderComponents alter column units drop default;
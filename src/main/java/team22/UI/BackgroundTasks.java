@@ -0,0 +1,263 @@
+package team22.UI;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Runs database calls (and anything else slow, like hashing passwords) on a small pool of background threads, so that
+ * the event dispatch thread never has to wait for them and the UI stays responsive. Results are handed back on the
+ * event dispatch thread, unless the task has been cancelled in the meantime (i.e. the user has moved to another page).
+ * Everything apart from the work itself must be called from the event dispatch thread
+ */
+public class BackgroundTasks {
+
+    // Enough to overlap a page load with a lookup, without tying up the whole connection pool
+    private static final int THREADS = 3;
+
+    // Once this many tasks are waiting, new ones are refused rather than piling up behind a slow database
+    private static final int MAX_QUEUED = 50;
+
+    // Used on a component to count how many tasks have given it a wait cursor
+    private static final String BUSY_COUNT = "BackgroundTasks.busyCount";
+
+    private static final ThreadPoolExecutor EXECUTOR;
+
+    static {
+        AtomicInteger threadCount = new AtomicInteger();
+        EXECUTOR = new ThreadPoolExecutor(THREADS, THREADS, 30, TimeUnit.SECONDS, new ArrayBlockingQueue<>(MAX_QUEUED), r -> {
+            // Daemon threads, so that a slow query never stops the program from closing
+            Thread t = new Thread(r, "background-task-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        EXECUTOR.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Runs some work in the background
+     * @param busy the component to show a wait cursor over while the work runs (can be null)
+     * @param work the work to run - must not touch any Swing components
+     * @param onDone called on the event dispatch thread with the result of the work, unless the task was cancelled
+     * @param <T> the type of result
+     * @return the task, which can be used to cancel it
+     */
+    public static <T> Task run(JComponent busy, Supplier<T> work, Consumer<T> onDone) {
+        return run(busy, work, onDone, () -> {});
+    }
+
+    /**
+     * Runs some work in the background
+     * @param busy the component to show a wait cursor over while the work runs (can be null)
+     * @param work the work to run - must not touch any Swing components
+     * @param onDone called on the event dispatch thread with the result of the work, unless the task was cancelled
+     * @param onFailed called on the event dispatch thread if the work couldn't be run or threw an exception (the user
+     *                 has already been told), so that anything disabled while loading can be enabled again
+     * @param <T> the type of result
+     * @return the task, which can be used to cancel it
+     */
+    public static <T> Task run(JComponent busy, Supplier<T> work, Consumer<T> onDone, Runnable onFailed) {
+        Task task = new Task(busy, null);
+        task.submit(work, onDone, onFailed);
+        return task;
+    }
+
+    /**
+     * Creates a placeholder to show while something is loading
+     * @param message the message to show above the progress bar
+     * @param size the size of the placeholder, which should match whatever will replace it
+     * @return a panel with the message and an indeterminate progress bar in the middle of it
+     */
+    public static JPanel createLoadingPanel(String message, Dimension size) {
+        JPanel panel = new JPanel(new GridBagLayout());
+        panel.setBackground(Color.WHITE);
+        panel.setMinimumSize(size);
+        panel.setPreferredSize(size);
+        panel.setMaximumSize(size);
+
+        JPanel holder = new JPanel();
+        holder.setLayout(new BoxLayout(holder, BoxLayout.PAGE_AXIS));
+        holder.setBackground(Color.WHITE);
+
+        JLabel label = new JLabel(message);
+        label.setFont(Fonts.getSizedFont(Fonts.OPENSANS_SEMIBOLD, 24));
+        label.setAlignmentX(Component.CENTER_ALIGNMENT);
+
+        JProgressBar progress = new JProgressBar();
+        progress.setIndeterminate(true);
+        progress.setAlignmentX(Component.CENTER_ALIGNMENT);
+
+        holder.add(label);
+        holder.add(Box.createVerticalStrut(15));
+        holder.add(progress);
+        panel.add(holder);
+
+        return panel;
+    }
+
+    /**
+     * Adds to (or removes from) the number of tasks a component is waiting on, showing a wait cursor while there are any
+     * @param busy the component waiting on tasks (can be null)
+     * @param change 1 when a task starts, -1 when it finishes
+     */
+    private static void changeBusyCount(JComponent busy, int change) {
+        if (busy == null) {
+            return;
+        }
+
+        Integer count = (Integer) busy.getClientProperty(BUSY_COUNT);
+        int newCount = (count == null ? 0 : count) + change;
+        busy.putClientProperty(BUSY_COUNT, newCount);
+
+        if (newCount > 0) {
+            busy.setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        } else {
+            busy.setCursor(null);
+        }
+    }
+
+    /**
+     * Keeps track of the tasks a page has started, so that they can all be cancelled when the user leaves the page
+     */
+    public static class Group {
+        private final ArrayList<Task> tasks = new ArrayList<>();
+
+        /**
+         * Runs some work in the background, as part of this group
+         * @see BackgroundTasks#run(JComponent, Supplier, Consumer)
+         */
+        public <T> Task run(JComponent busy, Supplier<T> work, Consumer<T> onDone) {
+            return run(busy, work, onDone, () -> {});
+        }
+
+        /**
+         * Runs some work in the background, as part of this group
+         * @see BackgroundTasks#run(JComponent, Supplier, Consumer, Runnable)
+         */
+        public <T> Task run(JComponent busy, Supplier<T> work, Consumer<T> onDone, Runnable onFailed) {
+            Task task = new Task(busy, this);
+            task.submit(work, onDone, onFailed);
+            return task;
+        }
+
+        /**
+         * Cancels every task in the group that hasn't finished yet
+         */
+        public void cancelAll() {
+            for (Task task : new ArrayList<>(tasks)) {
+                task.cancel();
+            }
+            tasks.clear();
+        }
+    }
+
+    /**
+     * A piece of work that has been handed to the background threads
+     */
+    public static class Task {
+        private final JComponent busy;
+        private final Group group;
+        private Future<?> future = null;
+        private volatile boolean cancelled = false;
+        private boolean finished = false;
+
+        /**
+         * @param busy the component to show a wait cursor over while the work runs (can be null)
+         * @param group the group the task belongs to (can be null)
+         */
+        private Task(JComponent busy, Group group) {
+            this.busy = busy;
+            this.group = group;
+        }
+
+        /**
+         * Hands the work to the background threads
+         * @param work the work to run
+         * @param onDone called with the result of the work, unless the task is cancelled first
+         * @param onFailed called if the work couldn't be run or threw an exception
+         * @param <T> the type of result
+         */
+        private <T> void submit(Supplier<T> work, Consumer<T> onDone, Runnable onFailed) {
+            changeBusyCount(busy, 1);
+            if (group != null) {
+                group.tasks.add(this);
+            }
+
+            try {
+                future = EXECUTOR.submit(() -> {
+                    if (cancelled) {
+                        return;
+                    }
+
+                    T result;
+                    try {
+                        result = work.get();
+                    } catch (RuntimeException e) {
+                        e.printStackTrace();
+                        SwingUtilities.invokeLater(() -> {
+                            if (finish()) {
+                                OptionPanes.showErrorPane("Something went wrong.\nPlease try again.", OptionPanes.RECOVERABLE);
+                                onFailed.run();
+                            }
+                        });
+                        return;
+                    }
+
+                    SwingUtilities.invokeLater(() -> {
+                        if (finish()) {
+                            onDone.accept(result);
+                        }
+                    });
+                });
+            } catch (RejectedExecutionException e) {
+                finish();
+                OptionPanes.showErrorPane("The system is busy right now.\nPlease try again in a moment.", OptionPanes.WARNING);
+                onFailed.run();
+            }
+        }
+
+        /**
+         * Clears up after the task, once it has finished or been cancelled
+         * @return true if the result should still be handed back, false if the task was cancelled
+         */
+        private boolean finish() {
+            if (finished) {
+                return false;
+            }
+            finished = true;
+
+            changeBusyCount(busy, -1);
+            if (group != null) {
+                group.tasks.remove(this);
+            }
+            return !cancelled;
+        }
+
+        /**
+         * Stops the result of the task from being handed back. If the work hasn't started yet it won't be run at all,
+         * but work that has already started is left to finish, rather than interrupting a database call part way
+         */
+        public void cancel() {
+            cancelled = true;
+            if (future != null) {
+                future.cancel(false);
+            }
+            finish();
+        }
+
+        /**
+         * @return true if the task has finished or been cancelled
+         */
+        public boolean isDone() {
+            return finished;
+        }
+    }
+}
@@ -1,15 +1,16 @@
 package team22.UI;
 
 import team22.dataAccessLayer.BikeComponent;
+import team22.dataAccessLayer.Catalogue;
+import team22.dataAccessLayer.ComponentType;
 
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
-import javax.swing.table.*;
 import java.awt.*;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Comparator;
+import java.util.List;
 import java.util.Objects;
-import java.util.stream.IntStream;
 
 public class BikeBuilder extends JPanel {
 
@@ -17,6 +18,9 @@ public class BikeBuilder extends JPanel {
 
     private final JScrollPane[] TABLES = new JScrollPane[COMPS.length];
 
+    // The model behind each table in TABLES - new versions of the catalogue are swapped into these in place
+    private final ArrayList<ObjectTableModel<BikeComponent>> MODELS = new ArrayList<>();
+
     private final JLabel[] COMP_LABELS = new JLabel[]{new JLabel(), new JLabel(), new JLabel()};
 
     private final JLabel ASSEMBLY_LABEL;
@@ -29,6 +33,15 @@ public class BikeBuilder extends JPanel {
 
     private JPanel selectionPane;
 
+    // Version of the catalogue the tables were built from, so that a late or repeated update can be ignored
+    private long catalogueVersion;
+
+    // Registered while the bike builder is on screen, so it can be removed again rather than keeping this card alive
+    private final Catalogue.Listener catalogueListener = s -> SwingUtilities.invokeLater(() -> updateCatalogue(s));
+
+    // Set while new rows are swapped into the tables, so the selection listeners ignore the resulting selection changes
+    private boolean updatingCatalogue = false;
+
     private int width;
     private int height;
 
@@ -64,8 +77,11 @@ public class BikeBuilder extends JPanel {
 
         JScrollPane textScroller = buildDetailsPanel(new Dimension(DETAILS_WIDTH, height));
 
+        // Newer versions of the catalogue are picked up by addNotify, once the bike builder is on screen
+        Catalogue.Snapshot snapshot = Catalogue.get();
+        catalogueVersion = snapshot.getVersion();
         for (int i=0; i<TABLES.length; i++) {
-            TABLES[i] = buildSelectorTable(MainFrame.ALL_COMPS[i], i);
+            TABLES[i] = buildSelectorTable(snapshot.getComponents(ComponentType.values()[i]), i);
         }
 
         selectionPane = new JPanel();
@@ -107,95 +123,77 @@ public class BikeBuilder extends JPanel {
 
     /**
      * Builds a JScrollPane conatining a table from which you can view details of/select components of a certain type
-     * @param type the Array of components from which to build a table
+     * @param type the components from which to build a table (an unmodifiable list from a catalogue snapshot)
      * @return the JScrollPane
      */
-    private JScrollPane buildSelectorTable(BikeComponent[] type, int currentCompType) {
+    private JScrollPane buildSelectorTable(List<BikeComponent> type, int currentCompType) {
         Font radioFont = Fonts.getSizedFont(Fonts.OPENSANS_LIGHT, 16);
 
-        String[] headers = type[0].getFieldTitles();
+        String[] headers = type.get(0).getFieldTitles();
 
-        // Create table with field values from the array of components
-        DefaultTableModel model = new DefaultTableModel(Arrays.stream(type).map(BikeComponent::getFieldValues).toArray(String[][]::new), headers);
+        // Cells are read straight from the components, so numeric columns sort as numbers without being parsed
+        ObjectTableModel<BikeComponent> model = new ObjectTableModel<>(headers, type.get(0).getFieldClasses(), BikeComponent::getFieldValue);
+        model.setRows(type);
+        MODELS.add(model);
         JTable t = new JTable(model);
 
         t.setFont(radioFont);
-        t.setDefaultEditor(Object.class, null);
         t.setAutoCreateRowSorter(true);
         t.getTableHeader().setReorderingAllowed(false);
         t.getTableHeader().setResizingAllowed(false);
         t.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
 
-        // Find indices of any columns that should be sorted as numbers
-        int[] numCols = IntStream.range(0, headers.length).filter(i -> headers[i].matches("Diameter|Size|Gears|Price|Qty.")).toArray();
-
-        TableRowSorter<TableModel> sorter = new TableRowSorter<>();
-        sorter.setModel(t.getModel());
-
-        Comparator<String> numComparator = (o1, o2) -> {
-            int int1 = Integer.parseInt(o1.replace("£", "").replace(".", ""));
-            int int2 = Integer.parseInt(o2.replace("£", "").replace(".", ""));
-            return int1 - int2; // Just need to return a number, so can just subtract int2 from int1
-        };
-
-        for (int i : numCols) {
-            sorter.setComparator(i, numComparator);
-        }
-
-        t.setRowSorter(sorter);
-
-
-        // Resize columns to fit data
-        for (int col=0; col<t.getColumnCount(); col++) {
-            TableColumn column = t.getColumnModel().getColumn(col);
-
-            int width = column.getMinWidth() + 50;
-            int max = column.getMaxWidth();
-
-            for (int row=0; row<t.getRowCount(); row++) {
-                TableCellRenderer tcr = t.getCellRenderer(row, col);
-                int newWidth = t.prepareRenderer(tcr, row, col).getPreferredSize().width + t.getIntercellSpacing().width;
-                width = Math.max(width, newWidth);
-
-                if (width >= max) {
-                    width = max;
-                    break;
-                }
+        // Prices are stored in pence, so only format them as they're drawn
+        for (int i=0; i<headers.length; i++) {
+            if (headers[i].equals("Price")) {
+                t.getColumnModel().getColumn(i).setCellRenderer(new MoneyCellRenderer());
             }
-
-            column.setPreferredWidth(width);
         }
 
+        // Resize columns to fit data - only a sample of rows is measured, so this stays quick on big tables
+        ColumnSizer.fitColumns(t);
+
         t.getSelectionModel().addListSelectionListener(e -> {
             // Gets called with selected row -1 when sorting columns, so just return to prevent an error
-            if (t.getSelectedRow() < 0 || t.getSelectedRow() >= t.getRowCount()) {
+            if (updatingCatalogue || t.getSelectedRow() < 0 || t.getSelectedRow() >= t.getRowCount()) {
                 return;
             }
 
             // Convert row index to model to ensure consistent selection, no matter how the data is sorted
-            BikeComponent comp = MainFrame.ALL_COMPS[currentCompType][t.getRowSorter().convertRowIndexToModel(t.getSelectedRow())];
+            BikeComponent comp = model.getRow(t.convertRowIndexToModel(t.getSelectedRow()));
 
-            if ((comp.getDisplayName().contains("Wheel") && comp.getQuantity() < 2) || comp.getQuantity() < 1) {
+            int unitsPerBike = comp.getType().getUnitsPerBike();
+            if (comp.getAvailable() < unitsPerBike) {
                 OptionPanes.showErrorPane("There currently isn't enough of " + comp.getDisplayName() + " in stock to process your request." +
                                             "\nPlease wait for stock to be replenished.", OptionPanes.WARNING);
                 return;
             }
 
-            String compName = comp.getDisplayName();
-            int compPrice = comp.getPrice();
-            if (currentCompType == 2) {
-                // Shopper will always need 2 wheels, so append a quantity indicator and double the line cost
-                compName += " (2)";
-                compPrice *= 2;
-            }
-            COMP_LABELS[currentCompType].setText(getDescriptorText(compName, compPrice));
-            CURRENT_ORDER[currentCompType] = comp;
-            updateTotalCostLabel();
+            selectComponent(comp, currentCompType);
         });
 
         return new JScrollPane(t);
     }
 
+    /**
+     * Adds a component to the shopper's bike, replacing any other component of its type, and updates the receipt
+     * @param comp the component to add
+     * @param currentCompType the index of the component's type, matching COMPS
+     */
+    private void selectComponent(BikeComponent comp, int currentCompType) {
+        int unitsPerBike = comp.getType().getUnitsPerBike();
+        String compName = comp.getDisplayName();
+        int compPrice = comp.getPrice();
+        if (unitsPerBike > 1) {
+            // Shopper will always need 2 wheels, so append a quantity indicator and multiply the line cost
+            compName += " (" + unitsPerBike + ")";
+            compPrice *= unitsPerBike;
+        }
+        COMP_LABELS[currentCompType].setText(getDescriptorText(compName, compPrice));
+        CURRENT_ORDER[currentCompType] = comp;
+        updateTotalCostLabel();
+    }
+
     /**
      * Calculates and updates the label for the total cost of the bike
      */
@@ -210,7 +208,9 @@ public class BikeBuilder extends JPanel {
         if (isOrderFull()) {
             total += 1000;
             ASSEMBLY_LABEL.setText(getDescriptorText("Additional assembly cost", 1000));
-            ((MainFrame) SwingUtilities.getWindowAncestor(this)).showSaveOrderButton();
+            if (!saving) {  // The catalogue can be updated while checking out, which mustn't bring the button back
+                ((MainFrame) SwingUtilities.getWindowAncestor(this)).showSaveOrderButton();
+            }
         }
 
         TOTAL_LABEL.setText(getDescriptorText("Total", total));
@@ -324,11 +324,87 @@ public class BikeBuilder extends JPanel {
     }
 
     /**
-     * Updates the selection tables to be current with the database
+     * Called by Swing when the bike builder is put on screen - starts listening for new versions of the catalogue, and
+     * catches up with any published while it wasn't listening
      */
-    protected void updateCatalogue() {
-        for (int i=0; i<TABLES.length; i++) {
-            TABLES[i] = buildSelectorTable(MainFrame.ALL_COMPS[i], i);
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        Catalogue.addListener(catalogueListener);
+        updateCatalogue(Catalogue.get());
+    }
+
+    /**
+     * Called by Swing when the bike builder is taken off screen, so the catalogue stops holding on to it
+     */
+    @Override
+    public void removeNotify() {
+        Catalogue.removeListener(catalogueListener);
+        super.removeNotify();
+    }
+
+    /**
+     * Updates the selection tables to match a new version of the catalogue, keeping the shopper's selections where the
+     * components still exist and have enough stock. Any other selection is taken off the bike, and the shopper is told
+     * - must be called on the event dispatch thread
+     * @param snapshot the newly published catalogue
+     */
+    private void updateCatalogue(Catalogue.Snapshot snapshot) {
+        if (snapshot.getVersion() <= catalogueVersion) {
+            return;
+        }
+        catalogueVersion = snapshot.getVersion();
+
+        ArrayList<String> removed = new ArrayList<>();
+        updatingCatalogue = true;
+        try {
+            for (int i=0; i<TABLES.length; i++) {
+                JTable t = (JTable) TABLES[i].getViewport().getView();
+                ObjectTableModel<BikeComponent> model = MODELS.get(i);
+                BikeComponent selected = CURRENT_ORDER[i];
+
+                model.setRows(snapshot.getComponents(ComponentType.values()[i]));
+                ColumnSizer.fitColumns(t);
+
+                if (selected == null) {
+                    continue;
+                }
+
+                // Swap the selected component for its new version, so the receipt and saved order have its latest price
+                boolean kept = false;
+                for (int row=0; row<model.getRowCount(); row++) {
+                    BikeComponent bc = model.getRow(row);
+                    if (bc.getBrandID() == selected.getBrandID() && bc.getSerial() == selected.getSerial()) {
+                        // The same check as choosing it, as its stock may have been reserved by other orders since
+                        if (bc.getAvailable() >= bc.getType().getUnitsPerBike()) {
+                            selectComponent(bc, i);
+                            int viewRow = t.convertRowIndexToView(row);
+                            t.setRowSelectionInterval(viewRow, viewRow);
+                            kept = true;
+                        }
+                        break;
+                    }
+                }
+
+                if (!kept) {
+                    removed.add(selected.getDisplayName());
+                    CURRENT_ORDER[i] = null;
+                    COMP_LABELS[i].setText("");
+                    t.clearSelection();
+                }
+            }
+        } finally {
+            updatingCatalogue = false;
+        }
+
+        if (!removed.isEmpty()) {
+            // The bike isn't complete any more, so it can't be checked out until it's been replaced
+            ASSEMBLY_LABEL.setText("");
+            updateTotalCostLabel();
+            ((MainFrame) SwingUtilities.getWindowAncestor(this)).hideSaveOrderButton();
+            OptionPanes.showErrorPane(String.join(", ", removed) + (removed.size() == 1 ? " is no longer available, so it has" :
+                                        " are no longer available, so they have") + " been taken off your bike." +
+                                        "\nPlease choose a replacement.", OptionPanes.WARNING);
         }
     }
 
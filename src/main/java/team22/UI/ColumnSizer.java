@@ -0,0 +1,184 @@
+package team22.UI;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableCellRenderer;
+import javax.swing.table.TableCellRenderer;
+import javax.swing.table.TableColumn;
+import java.awt.*;
+import java.util.BitSet;
+import java.util.Random;
+
+/**
+ * Sizes table columns to fit their contents without rendering every row. Only the header, the first and last few rows,
+ * a random sample of rows, and the rows with the longest values get measured - so a table with tens of thousands of
+ * rows costs about the same to size as one with a couple of hundred. Text cells are measured with the cached font
+ * metrics from Fonts, so only one cell per column (and any cells with other renderers) actually gets rendered
+ */
+public class ColumnSizer {
+
+    // How many rows at the top and bottom of the table to measure
+    static final int EDGE_ROWS = 20;
+
+    // How many other rows to pick at random and measure
+    static final int RANDOM_ROWS = 50;
+
+    // How many of the rows with the longest values to measure in each column
+    static final int LONGEST_ROWS = 5;
+
+    // Finding the longest values only reads the model (no rendering), but still stop at this many rows on huge tables
+    static final int MAX_SCANNED_ROWS = 10000;
+
+    // Extra space given to every column on top of its minimum width, so short columns aren't cramped
+    private static final int EXTRA_WIDTH = 50;
+
+    /**
+     * Sets the preferred width of every column in a table to fit its header and (a sample of) its contents
+     * @param table the table to size the columns of - call again after the rows have changed
+     */
+    public static void fitColumns(JTable table) {
+        int rowCount = table.getRowCount();
+        BitSet sampled = sampleRows(rowCount);
+
+        for (int col=0; col<table.getColumnCount(); col++) {
+            TableColumn column = table.getColumnModel().getColumn(col);
+
+            int width = Math.max(column.getMinWidth() + EXTRA_WIDTH, headerWidth(table, column, col));
+            int max = column.getMaxWidth();
+
+            // The rows sampled for every column, plus this column's longest values
+            BitSet rows = (BitSet) sampled.clone();
+            for (int row : longestRows(table, col, rowCount)) {
+                rows.set(row);
+            }
+
+            // Space the renderer adds around its text (borders/insets), found by rendering the first plain text cell
+            int padding = -1;
+
+            for (int row = rows.nextSetBit(0); row >= 0 && width < max; row = rows.nextSetBit(row + 1)) {
+                TableCellRenderer tcr = table.getCellRenderer(row, col);
+                Object value = table.getValueAt(row, col);
+
+                int cellWidth;
+                if (padding >= 0 && value instanceof String && isPlainText(tcr)) {
+                    cellWidth = Fonts.getStringWidth(table.getFont(), (String) value) + padding;
+                } else {
+                    cellWidth = table.prepareRenderer(tcr, row, col).getPreferredSize().width;
+                    if (padding < 0 && value instanceof String && isPlainText(tcr)) {
+                        padding = Math.max(0, cellWidth - Fonts.getStringWidth(table.getFont(), (String) value));
+                    }
+                }
+                width = Math.max(width, cellWidth + table.getIntercellSpacing().width);
+            }
+
+            column.setPreferredWidth(Math.min(width, max));
+        }
+    }
+
+    /**
+     * @param renderer a cell renderer
+     * @return true if the renderer just shows a String value as it is, in the table's font, so the cell's width can be
+     *         worked out from the text alone
+     */
+    private static boolean isPlainText(TableCellRenderer renderer) {
+        return renderer.getClass() == DefaultTableCellRenderer.class || renderer.getClass() == DefaultTableCellRenderer.UIResource.class;
+    }
+
+    /**
+     * @param rowCount the number of rows in the table
+     * @return the first and last EDGE_ROWS rows, and RANDOM_ROWS rows from the rest
+     */
+    static BitSet sampleRows(int rowCount) {
+        BitSet rows = new BitSet(rowCount);
+        if (rowCount <= EDGE_ROWS * 2 + RANDOM_ROWS) {
+            rows.set(0, rowCount);
+            return rows;
+        }
+
+        rows.set(0, EDGE_ROWS);
+        rows.set(rowCount - EDGE_ROWS, rowCount);
+
+        // Seeded by the size of the table, so the same table always gets the same column widths
+        Random random = new Random(rowCount);
+        for (int i=0; i<RANDOM_ROWS; i++) {
+            rows.set(EDGE_ROWS + random.nextInt(rowCount - EDGE_ROWS * 2));
+        }
+        return rows;
+    }
+
+    /**
+     * Finds the rows whose values in a column are longest, going by character count rather than rendering them
+     * @param table the table to search
+     * @param col the column to search (view index)
+     * @param rowCount the number of rows in the table
+     * @return up to LONGEST_ROWS row indices (view indices), longest first
+     */
+    static int[] longestRows(JTable table, int col, int rowCount) {
+        int[] longest = new int[LONGEST_ROWS];
+        int[] lengths = new int[LONGEST_ROWS];
+        int found = 0;
+
+        // Spread the scanned rows out over the whole table if there are too many to read them all - rounded up, so
+        // that no more than MAX_SCANNED_ROWS are ever read
+        int step = Math.max(1, (rowCount + MAX_SCANNED_ROWS - 1) / MAX_SCANNED_ROWS);
+        for (int row=0; row<rowCount; row+=step) {
+            int length = textLength(table.getValueAt(row, col));
+            if (found == LONGEST_ROWS && length <= lengths[LONGEST_ROWS - 1]) {
+                continue;
+            }
+
+            // Insertion sort into the (short) list of longest values, longest first
+            int i = found < LONGEST_ROWS ? found++ : LONGEST_ROWS - 1;
+            while (i > 0 && lengths[i - 1] < length) {
+                lengths[i] = lengths[i - 1];
+                longest[i] = longest[i - 1];
+                i--;
+            }
+            lengths[i] = length;
+            longest[i] = row;
+        }
+
+        int[] result = new int[found];
+        System.arraycopy(longest, 0, result, 0, found);
+        return result;
+    }
+
+    /**
+     * @param value a value from a table
+     * @return roughly how many characters the value will take up when displayed, without converting it to a String
+     */
+    private static int textLength(Object value) {
+        if (value == null) {
+            return 0;
+        } else if (value instanceof String) {
+            return ((String) value).length();
+        } else if (value instanceof Integer || value instanceof Long) {
+            long n = Math.abs(((Number) value).longValue());
+            int digits = 1;
+            while (n >= 10) {
+                n /= 10;
+                digits++;
+            }
+            return digits;
+        }
+        return value.toString().length();
+    }
+
+    /**
+     * @param table the table the column belongs to
+     * @param column the column to measure the header of
+     * @param col the view index of the column
+     * @return the width needed to fit the column's header
+     */
+    private static int headerWidth(JTable table, TableColumn column, int col) {
+        TableCellRenderer renderer = column.getHeaderRenderer();
+        if (renderer == null) {
+            if (table.getTableHeader() == null) {
+                return 0;
+            }
+            renderer = table.getTableHeader().getDefaultRenderer();
+        }
+
+        Component c = renderer.getTableCellRendererComponent(table, column.getHeaderValue(), false, false, -1, col);
+        return c.getPreferredSize().width;
+    }
+}
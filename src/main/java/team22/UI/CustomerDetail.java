@@ -17,6 +17,9 @@ public class CustomerDetail extends JPanel {
 
     private int width;
 
+    /** Lookups that are still running - cancelled if the customer leaves the page before they finish */
+    private final BackgroundTasks.Group lookups = new BackgroundTasks.Group();
+
     /**
      * Used to create the page on which a customer changes their details
      * @param width the width of the page
@@ -53,6 +56,7 @@ public class CustomerDetail extends JPanel {
      * Builds the 'login' page, where a customer enters their details
      */
     private void buildLoginPage() {
+        lookups.cancelAll();
         removeAll();
 		setLayout(new GridBagLayout());  // Use GridBagLayout to centre the form.
 
@@ -107,22 +111,29 @@ public class CustomerDetail extends JPanel {
             if (!customerDetailsForm.validInputs()) {
                 return;
             }
+            String forename = customerDetailsForm.getInput("Forename");
+            String surname = customerDetailsForm.getInput("Surname");
+            String postcode = customerDetailsForm.getInput("Postcode");
+            int houseNum;
             try {
-                String forename = customerDetailsForm.getInput("Forename");
-                String surname = customerDetailsForm.getInput("Surname");
-                String houseNum = customerDetailsForm.getInput("House Number");
-                String postcode = customerDetailsForm.getInput("Postcode");
-                CustomerInfo customer = CustomerInfo.getCustomerInfo(forename, surname, Integer.parseInt(houseNum), postcode);
-                if (customer.getCustomer() == null) {
+                houseNum = Integer.parseInt(customerDetailsForm.getInput("House Number"));
+            } catch (NumberFormatException ex) {
+                incorrectDetails.setText("Invalid details!");
+                return;
+            }
+
+            login.setEnabled(false);
+            incorrectDetails.setText("");
+            lookups.run(this, () -> CustomerInfo.getCustomerInfo(forename, surname, houseNum, postcode), customer -> {
+                login.setEnabled(true);
+                if (customer == null || customer.getCustomer() == null) {
                     incorrectDetails.setText("Login failed! Make sure your details are correct!");
                 } else {
                     buildLandingPage(customer);
                     CONTENT_PANE.revalidate();
                     CONTENT_PANE.repaint();
                 }
-            } catch (Exception ex) {
-                incorrectDetails.setText("Invalid details!");
-            }
+            }, () -> login.setEnabled(true));
         });
 
         revalidate();
@@ -134,6 +145,7 @@ public class CustomerDetail extends JPanel {
      * @param ci the CustomerInfo to display
      */
     private void buildLandingPage(CustomerInfo ci) {
+        lookups.cancelAll();
         removeAll();
 		CONTENT_PANE.removeAll();
 
@@ -186,6 +198,7 @@ public class CustomerDetail extends JPanel {
      * @param ci the CustomerInfo to edit
      */
     private void buildEditPage(CustomerInfo ci) {
+        lookups.cancelAll();
         removeAll();
 		CONTENT_PANE.removeAll();
 
@@ -215,27 +228,35 @@ public class CustomerDetail extends JPanel {
                     !Validation.isValidNumber(form.getHouseNum())){
                     form.setError("Please ensure your details are valid!");;
                 } else {
+                    int houseNum;
                     try {
+                        houseNum = Integer.parseInt(form.getHouseNum());
+                    } catch (NumberFormatException ex) {
+                        form.setError("Error! Please make sure you are entering your details correctly!");
+                        return;
+                    }
+                    String forename = form.getForename();
+                    String surname = form.getSurname();
+                    String postcode = form.getPostcode();
+                    String road = form.getRoad();
+                    String city = form.getCity();
+
+                    // Not part of the page's lookups - once a save has started it should be allowed to finish
+                    save.setEnabled(false);
+                    BackgroundTasks.run(this, () -> {
                         Customer customer = ci.getCustomer();
-
-                        boolean addressSuccess = ci.updateCustomerAddress(Integer.parseInt(form.getHouseNum()), form.getPostcode(), form.getRoad(), form.getCity());
-
-                        if (addressSuccess) {
-                            customer.setForename(form.getForename());
-                            customer.setSurname(form.getSurname());
-
-                            boolean updateSuccess = Customer.updateCustomer(customer);
-
-                            if (updateSuccess) {
-                                OptionPanes.showSuccessPane("Successfully edited details!");
-                            }
+                        if (!ci.updateCustomerAddress(houseNum, postcode, road, city)) {
+                            return false;
+                        }
+                        customer.setForename(forename);
+                        customer.setSurname(surname);
+                        return Customer.updateCustomer(customer);
+                    }, success -> {
+                        if (success) {
+                            OptionPanes.showSuccessPane("Successfully edited details!");
                         }
-
                         buildLandingPage(ci);
-
-                    } catch (Exception ex) {
-                        form.setError("Error! Please make sure you are entering your details correctly!");
-                    } 
+                    }, () -> save.setEnabled(true));
                 }
             }
         });
@@ -3,6 +3,7 @@ package team22.UI;
 import java.awt.*;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * A helper class used for fonts, to prevent messy font code all over the place
@@ -17,6 +18,16 @@ class Fonts {
     protected static Font OPENSANS_BOLD = loadFont("OpenSans", "Bold");
     protected static Font FAKERECEIPT_REGULAR = loadFont("FakeReceipt", "Regular");
 
+    // Resized fonts, keyed by the font they were derived from and then by size - deriving a font isn't free, and the
+    // same few sizes get asked for over and over
+    private static final ConcurrentHashMap<Font, ConcurrentHashMap<Integer, Font>> SIZED_FONTS = new ConcurrentHashMap<>();
+
+    // Font metrics, keyed by font (which includes its size). Metrics are only ever read, so can be shared between threads
+    private static final ConcurrentHashMap<Font, FontMetrics> METRICS = new ConcurrentHashMap<>();
+
+    // Any component can hand out font metrics, so share one rather than creating a new one for every measurement
+    private static final Canvas METRICS_SOURCE = new Canvas();
+
     /**
      * Loads a font from a specified name and type (assuming all fonts are stored in resources/fonts)
      * @param fontName the font to load
@@ -39,7 +50,16 @@ class Fonts {
      * @return the resized font
      */
     protected static Font getSizedFont(Font f, int size) {
-        return f.deriveFont((float) size);
+        return SIZED_FONTS.computeIfAbsent(f, k -> new ConcurrentHashMap<>())
+                          .computeIfAbsent(size, k -> f.deriveFont((float) size));
+    }
+
+    /**
+     * @param f the font to get the metrics of
+     * @return the metrics of font f, measured the first time they're needed and then reused
+     */
+    protected static FontMetrics getMetrics(Font f) {
+        return METRICS.computeIfAbsent(f, METRICS_SOURCE::getFontMetrics);
     }
 
     /**
@@ -48,7 +68,7 @@ class Fonts {
      * @return the width of character c in font f
      */
     public static int getStringWidth(Font f, String s) {
-        return new Canvas().getFontMetrics(f).stringWidth(s);
+        return getMetrics(f).stringWidth(s);
     }
 
     /**
@@ -56,6 +76,6 @@ class Fonts {
      * @return the line height of font f
      */
     public static int getHeight(Font f) {
-        return new Canvas().getFontMetrics(f).getHeight();
+        return getMetrics(f).getHeight();
     }
 }
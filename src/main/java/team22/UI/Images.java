@@ -2,7 +2,13 @@ package team22.UI;
 
 import javax.imageio.ImageIO;
 import java.awt.*;
+import java.awt.image.BufferedImage;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * A utility class for working with images in our program
@@ -19,16 +25,157 @@ class Images {
     protected static String EDIT_CUSTOMER = "/img/person-gear.bmp";
     protected static String SAVE = "/img/save.bmp";
 
+    // Decoded bitmaps, so that each one is only read from the classpath once no matter how many sizes it's needed at
+    private static final ConcurrentHashMap<String, BufferedImage> DECODED = new ConcurrentHashMap<>();
+
+    // Scaled images, keyed by source and size. Stored as futures so that a preload and a request for the same image
+    // share the work instead of both doing it
+    private static final ConcurrentHashMap<String, CompletableFuture<BufferedImage>> SCALED = new ConcurrentHashMap<>();
+
     /**
-     * Loads an image from a stream and scales it
-     * @param imageStream the stream from which to load the image
+     * Loads an image and scales it - the first time a particular image is asked for at a particular size, after that
+     * the same scaled image is handed back
+     * @param imageSrc the location of the image (one of the constants above)
      * @param width the width of the final image
      * @param height the height of the final image
      * @return the scaled image
-     * @throws IOException if the imageStream cannot be found/read
-     * @throws IllegalArgumentException if the imageStream is null
+     * @throws IOException if the image cannot be read
+     * @throws IllegalArgumentException if the image cannot be found
      */
     protected static Image loadSizedImage(String imageSrc, int width, int height) throws IOException, IllegalArgumentException {
-        return ImageIO.read(MainFrame.class.getResourceAsStream(imageSrc)).getScaledInstance(width, height, Image.SCALE_SMOOTH);
+        try {
+            return getScaled(imageSrc, width, height, false).join();
+        } catch (CompletionException e) {
+            // Hand back the same exceptions the image would have thrown if it had been loaded on this thread
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            } else if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Starts loading and scaling images in the background, in parallel, so that they're ready by the time they're
+     * needed. Failures are ignored here - they'll happen again (and be handled) when the image is actually asked for
+     * @param size the width and height to scale the images to
+     * @param imageSrcs the locations of the images (constants above)
+     * @return a future that completes once every image has been loaded (or failed to load)
+     */
+    protected static CompletableFuture<Void> preload(int size, String... imageSrcs) {
+        CompletableFuture<?>[] loads = new CompletableFuture<?>[imageSrcs.length];
+        for (int i=0; i<imageSrcs.length; i++) {
+            loads[i] = getScaled(imageSrcs[i], size, size, true).handle((image, e) -> null);
+        }
+        return CompletableFuture.allOf(loads);
+    }
+
+    /**
+     * Gets a scaled image from the cache, loading it if it isn't there
+     * @param imageSrc the location of the image
+     * @param width the width of the final image
+     * @param height the height of the final image
+     * @param inBackground whether to load the image on a background thread, rather than the calling one
+     * @return the scaled image, or a future that will hold it once loaded
+     */
+    private static CompletableFuture<BufferedImage> getScaled(String imageSrc, int width, int height, boolean inBackground) {
+        String key = imageSrc + "@" + width + "x" + height;
+
+        CompletableFuture<BufferedImage> existing = SCALED.get(key);
+        if (existing != null) {
+            return existing;
+        }
+
+        CompletableFuture<BufferedImage> created = new CompletableFuture<>();
+        existing = SCALED.putIfAbsent(key, created);
+        if (existing != null) {
+            return existing;
+        }
+
+        Runnable load = () -> {
+            try {
+                created.complete(scale(decode(imageSrc), width, height));
+            } catch (IOException | RuntimeException e) {
+                // Don't keep failures, so the image can be tried again
+                SCALED.remove(key, created);
+                created.completeExceptionally(e);
+            }
+        };
+
+        if (inBackground) {
+            ForkJoinPool.commonPool().execute(load);
+        } else {
+            load.run();
+        }
+        return created;
+    }
+
+    /**
+     * @param imageSrc the location of the image
+     * @return the decoded image, read from the classpath the first time it's needed
+     * @throws IOException if the image cannot be read
+     * @throws IllegalArgumentException if the image cannot be found
+     */
+    private static BufferedImage decode(String imageSrc) throws IOException {
+        BufferedImage image = DECODED.get(imageSrc);
+        if (image != null) {
+            return image;
+        }
+
+        try (InputStream is = MainFrame.class.getResourceAsStream(imageSrc)) {
+            image = ImageIO.read(is);
+        }
+        if (image == null) {
+            throw new IOException("Couldn't decode " + imageSrc);
+        }
+
+        BufferedImage raced = DECODED.putIfAbsent(imageSrc, image);
+        return raced != null ? raced : image;
+    }
+
+    /**
+     * Scales an image, halving its size in steps until it's close to the target - scaling straight down from a much
+     * bigger image with bilinear filtering leaves it looking jagged
+     * @param source the image to scale
+     * @param width the width of the final image
+     * @param height the height of the final image
+     * @return the scaled image, in a format that's quick to draw on screen
+     */
+    private static BufferedImage scale(BufferedImage source, int width, int height) {
+        BufferedImage current = source;
+        int w = source.getWidth();
+        int h = source.getHeight();
+
+        do {
+            w = Math.max(width, w / 2);
+            h = Math.max(height, h / 2);
+
+            BufferedImage next = createImage(w, h, source.getTransparency());
+            Graphics2D g = next.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(current, 0, 0, w, h, null);
+            g.dispose();
+
+            current = next;
+        } while (w != width || h != height);
+
+        return current;
+    }
+
+    /**
+     * @param width the width of the image
+     * @param height the height of the image
+     * @param transparency the transparency of the image (from the Transparency interface)
+     * @return a blank image in the same format as the screen if there is one, so it doesn't need converting every time
+     *         it's drawn
+     */
+    private static BufferedImage createImage(int width, int height, int transparency) {
+        if (GraphicsEnvironment.isHeadless()) {
+            return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        }
+        GraphicsConfiguration gc = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration();
+        return gc.createCompatibleImage(width, height, transparency);
     }
 }
@@ -3,38 +3,42 @@ package team22.UI;
 import javax.swing.*;
 import java.awt.*;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.concurrent.CompletableFuture;
 
 import com.formdev.flatlaf.*;
-import team22.dataAccessLayer.BikeComponent;
+import team22.dataAccessLayer.Catalogue;
 
 public class MainFrame extends JFrame {
 	static int WIDTH = 1600;
 	static int HEIGHT = 900;
 
-	// Used in DBDriver - if a database connection error occurs before the GUI has been initialised, it will
-	// terminate the program
+	// Used in DBDriver - if a database connection error occurs before the frame is shown, it will terminate the program.
+	// Once it is shown, a failed catalogue load lets the user try again instead (see catalogueLoaded)
 	public static boolean GUI_INITIALISED = false;
 
 	static String[] cards = new String[]{"Bike Builder", "Track an Order", "Staff Access", "Edit Customer"};
 
-	public static BikeComponent[] allFrameSets;
-	public static BikeComponent[] allHandlebars;
-	public static BikeComponent[] allWheels;
+	// When the program was started, so that startup timings can be logged
+	private static final long LAUNCHED = System.nanoTime();
 
-	public static BikeComponent[][] ALL_COMPS = new BikeComponent[3][];
-
-	// Ensure that components are updated before BikeBuilder tries to access them
-	static {
-		FlatLightLaf.setup();  // Setup flatlightlaf to ensure that any error thrown in updateComponents will look pretty
-		updateComponents();
-	}
+	// Name of the placeholder card shown in place of the bike builder until the catalogue has loaded
+	private static final String LOADING_CARD = "Loading";
 
 	JButton saveOrderButton;
 	Component saveOrderStandin;
 
 	BikeBuilder bikeBuilder;
 
+	private JPanel cardPanel;
+	private CardLayout cardLayout;
+	private int cardWidth;
+	private int cardHeight;
+
+	// The cards that have been built so far - every card except the bike builder is only built when first shown
+	private final HashSet<String> builtCards = new HashSet<>();
+	private String currentCard = cards[0];
+
 	/**
 	 * @param title the title of the Frame
 	 */
@@ -43,19 +47,17 @@ public class MainFrame extends JFrame {
 		setSize(WIDTH, HEIGHT);
 		setLayout(new BoxLayout(getContentPane(), BoxLayout.LINE_AXIS));
 
-		int cardWidth = WIDTH * 80 / 100;
-		int cardHeight = HEIGHT - 150;
+		cardWidth = WIDTH * 80 / 100;
+		cardHeight = HEIGHT - 150;
 
-		JPanel cardPanel = new JPanel();
-		cardPanel.setLayout(new CardLayout());
+		cardLayout = new CardLayout();
+		cardPanel = new JPanel(cardLayout);
 		cardPanel.setMaximumSize(new Dimension(cardWidth, cardHeight));
 
-		cardPanel.add(bikeBuilder = new BikeBuilder(cardWidth, cardHeight), "Bike Builder");
-		cardPanel.add(new TrackOrder(cardWidth, cardHeight), "Track an Order");
-		cardPanel.add(new StaffAccess(cardWidth, cardHeight), "Staff Access");
-		cardPanel.add(new CustomerDetail(cardWidth, cardHeight), "Edit Customer");
+		// The bike builder needs the catalogue, so show a placeholder until it has loaded (see showBikeBuilder)
+		cardPanel.add(BackgroundTasks.createLoadingPanel("Loading products...", new Dimension(cardWidth, cardHeight)), LOADING_CARD);
+		cardLayout.show(cardPanel, LOADING_CARD);
 
-		((CardLayout) cardPanel.getLayout()).show(cardPanel, "Bike Builder");  // Set bike builder as initial state
 		saveOrderButton = buildSaveOrderButton();
 		saveOrderStandin = Box.createVerticalStrut(50);
 
@@ -63,11 +65,76 @@ public class MainFrame extends JFrame {
 
 		add(cardPanel);
 		add(Box.createHorizontalGlue());
-		add(switchCardButtons(cardPanel, (CardLayout) cardPanel.getLayout()));
+		add(switchCardButtons());
 		add(Box.createHorizontalStrut(25));
 
 		setVisible(true);
-	} 
+	}
+
+	/**
+	 * Builds the bike builder and shows it in place of the loading placeholder - called once the catalogue has loaded
+	 */
+	private void showBikeBuilder() {
+		cardPanel.add(bikeBuilder = new BikeBuilder(cardWidth, cardHeight), cards[0]);
+		builtCards.add(cards[0]);
+
+		if (currentCard.equals(cards[0])) {
+			cardLayout.show(cardPanel, cards[0]);
+		}
+	}
+
+	/**
+	 * Called on the event dispatch thread once loading the catalogue at startup has finished. Shows the bike builder if
+	 * it worked - otherwise nothing can be sold, so the user can either try again or exit
+	 * @param snapshot the catalogue after loading (null if loading threw an exception)
+	 */
+	private void catalogueLoaded(Catalogue.Snapshot snapshot) {
+		if (snapshot != null && snapshot.isLoaded()) {
+			long builderStart = System.nanoTime();
+			showBikeBuilder();
+			logPhase("Building " + cards[0], builderStart);
+			return;
+		}
+
+		if (OptionPanes.showRetryPane("The products couldn't be loaded, so bikes can't be built." +
+				"\nPlease check your connection to the server, then try again.", "Try again", "Exit")) {
+			BackgroundTasks.run(null, Catalogue::refresh, this::catalogueLoaded, () -> catalogueLoaded(null));
+		} else {
+			System.exit(0);
+		}
+	}
+
+	/**
+	 * Shows a card, building it first if this is the first time it's been shown
+	 * @param card the name of the card to show (from cards)
+	 */
+	private void showCard(String card) {
+		currentCard = card;
+		if (card.equals(cards[0]) && bikeBuilder == null) {
+			cardLayout.show(cardPanel, LOADING_CARD);  // Still waiting on the catalogue
+			return;
+		}
+
+		if (builtCards.add(card)) {
+			long start = System.nanoTime();
+			cardPanel.add(createCard(card), card);
+			logPhase("Building " + card, start);
+		}
+		cardLayout.show(cardPanel, card);
+	}
+
+	/**
+	 * @param card the name of the card to build (from cards, apart from the bike builder)
+	 * @return the panel for that card
+	 */
+	private JPanel createCard(String card) {
+		if (card.equals(cards[1])) {
+			return new TrackOrder(cardWidth, cardHeight);
+		} else if (card.equals(cards[2])) {
+			return new StaffAccess(cardWidth, cardHeight);
+		}
+		return new CustomerDetail(cardWidth, cardHeight);
+	}
 
 	/**
 	 * @return the saveOrder button
@@ -102,11 +169,9 @@ public class MainFrame extends JFrame {
 
 	/**
 	 * Creates the buttons used for changing visible card in the frame.
-	 * @param cardShow the panel with a CardLayout that displays the cards.
-	 * @param layout the actual CardLayout that controls which card to show.
 	 * @return the panel containing the buttons.
 	 */
-	private JPanel switchCardButtons(JPanel cardShow, CardLayout layout) {
+	private JPanel switchCardButtons() {
 		JPanel buttons = new JPanel();
 		buttons.setLayout(new BoxLayout(buttons, BoxLayout.PAGE_AXIS));
 		buttons.add(Box.createVerticalStrut(50));
@@ -141,12 +206,13 @@ public class MainFrame extends JFrame {
 			button.setMaximumSize(new Dimension(WIDTH / 5, 50));
 
 			button.addActionListener(e -> {
-				// Hide saveOrder button when not on build a bike screen
-				saveOrderButton.setVisible(card.equals(cards[0]) && bikeBuilder.isOrderFull() && !bikeBuilder.saving);
+				// Hide saveOrder button when not on build a bike screen (or it hasn't loaded yet)
+				boolean showSave = card.equals(cards[0]) && bikeBuilder != null && bikeBuilder.isOrderFull() && !bikeBuilder.saving;
+				saveOrderButton.setVisible(showSave);
 
 				// Add spacing to keep other buttons from shifting up when saveOrder button is invisible
-				saveOrderStandin.setVisible(!card.equals(cards[0]) || !bikeBuilder.isOrderFull() || bikeBuilder.saving);
-				layout.show(cardShow, card);
+				saveOrderStandin.setVisible(!showSave);
+				showCard(card);
 			});
 			buttonHolder.add(button);
 			if (i<cards.length-1) {
@@ -170,7 +236,7 @@ public class MainFrame extends JFrame {
 	private static JButton createIconedButton(String imageSrc, String text, Font buttonFont) {
 		JButton button;
 		try {
-			int newImgDim = Fonts.getHeight(buttonFont) * 5 / 4;
+			int newImgDim = buttonIconSize(buttonFont);
 			Image saveOrderIconImg = Images.loadSizedImage(imageSrc, newImgDim, newImgDim);
 			ImageIcon saveOrderIcon = new ImageIcon(saveOrderIconImg);
 			button = new JButton(saveOrderIcon);
@@ -185,62 +251,81 @@ public class MainFrame extends JFrame {
 	}
 
 	/**
-	 * Thread used to update the bike builder catalogue without slowing down the other operations
+	 * @param buttonFont the font of the button's text
+	 * @return the width and height of the icon on a button, so that it lines up with the text
 	 */
-	class UpdateThread extends Thread {
-		public void run() {
-			bikeBuilder.updateCatalogue();
-		}
+	private static int buttonIconSize(Font buttonFont) {
+		return Fonts.getHeight(buttonFont) * 5 / 4;
 	}
 
 	/**
-	 * Updates the components list, and also the bike builder tables
+	 * Brings the catalogue up to date with the database in the background. Anything showing the catalogue (like the
+	 * bike builder tables) listens for new versions, so is updated once the refresh has finished
 	 */
 	public void updateCatalogue() {
-		updateComponents();
-
-		UpdateThread update = new UpdateThread();
-		update.start();
+		BackgroundTasks.run(null, Catalogue::refresh, snapshot -> {});
 	}
 
 	/**
-	 * Updates the component list to ensure that it is current with the database
+	 * Logs how long a phase of startup took
+	 * @param phase the name of the phase
+	 * @param start when the phase started (from System.nanoTime)
 	 */
-	private static void updateComponents() {
-		ArrayList<BikeComponent> fsList = new ArrayList<>();
-		ArrayList<BikeComponent> hList = new ArrayList<>();
-		ArrayList<BikeComponent> wList = new ArrayList<>();
-
-		for (BikeComponent bc : BikeComponent.getAll()) {
-			if (bc.getDisplayName().contains("Frame Set")) {
-				fsList.add(bc);
-			} else if (bc.getDisplayName().contains("Handlebar")) {
-				hList.add(bc);
-			} else if (bc.getDisplayName().contains("Wheel")) {
-				wList.add(bc);
-			}
-		}
-
-		allFrameSets = fsList.toArray(new BikeComponent[0]);
-		allHandlebars = hList.toArray(new BikeComponent[0]);
-		allWheels = wList.toArray(new BikeComponent[0]);
-
-		ALL_COMPS[0] = allFrameSets;
-		ALL_COMPS[1] = allHandlebars;
-		ALL_COMPS[2] = allWheels;
+	private static void logPhase(String phase, long start) {
+		long now = System.nanoTime();
+		System.out.println("Startup: " + phase + " took " + (now - start) / 1000000 + "ms ("
+				+ (now - LAUNCHED) / 1000000 + "ms since launch)");
 	}
 
 	/**
-	 * Main - runs the whole program
+	 * Main - runs the whole program. The frame is shown straight away, while the fonts, icons and catalogue load in the
+	 * background alongside each other - the bike builder is swapped in once the catalogue is ready
 	 */
 	public static void main(String[] args) {
+		long start = System.nanoTime();
+		FlatLightLaf.setup();  // Setup flatlightlaf first to ensure that any error thrown while starting will look pretty
+
 		UIDefaults uid = UIManager.getDefaults();
 
 		// Add alternate row colour if not already present in look and feel
 		uid.putIfAbsent("Table.alternateRowColor", Color.LIGHT_GRAY);
-
-		new MainFrame("Build-A-Bike Sales System");
-		GUI_INITIALISED = true;
+		logPhase("Look and feel", start);
+
+		CompletableFuture<Catalogue.Snapshot> catalogue = CompletableFuture.supplyAsync(() -> {
+			long catalogueStart = System.nanoTime();
+			Catalogue.Snapshot snapshot = Catalogue.refresh();
+			logPhase("Catalogue", catalogueStart);
+			return snapshot;
+		});
+
+		// The icons are sized from the fonts, so load the fonts first
+		CompletableFuture.runAsync(() -> {
+			long fontStart = System.nanoTime();
+			Font buttonFont = Fonts.getSizedFont(Fonts.OPENSANS_SEMIBOLD, 24);
+			Font saveOrderFont = Fonts.getSizedFont(Fonts.OPENSANS_SEMIBOLD, 16);
+			logPhase("Fonts", fontStart);
+
+			long iconStart = System.nanoTime();
+			CompletableFuture.allOf(
+					Images.preload(buttonIconSize(buttonFont), Images.BICYCLE, Images.GEO_ALT, Images.PERSON_LOCK, Images.EDIT_CUSTOMER),
+					Images.preload(buttonIconSize(saveOrderFont), Images.SAVE),
+					OptionPanes.preloadIcons()
+			).thenRun(() -> logPhase("Icons", iconStart));
+		});
+
+		SwingUtilities.invokeLater(() -> {
+			long frameStart = System.nanoTime();
+			MainFrame frame = new MainFrame("Build-A-Bike Sales System");
+			GUI_INITIALISED = true;
+			logPhase("Showing frame", frameStart);
+
+			catalogue.whenComplete((snapshot, e) -> {
+				if (e != null) {
+					e.printStackTrace();
+				}
+				SwingUtilities.invokeLater(() -> frame.catalogueLoaded(snapshot));
+			});
+		});
 	}
 
 }
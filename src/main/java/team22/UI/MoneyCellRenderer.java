@@ -0,0 +1,22 @@
+package team22.UI;
+
+import team22.businessLogicLayer.StringUtils;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableCellRenderer;
+
+/**
+ * Renders a price stored in pence (as an Integer) as pounds - so price columns can hold the raw number, and sort by it,
+ * while only the rows actually being painted get formatted
+ */
+class MoneyCellRenderer extends DefaultTableCellRenderer {
+
+    MoneyCellRenderer() {
+        setHorizontalAlignment(SwingConstants.RIGHT);
+    }
+
+    @Override
+    protected void setValue(Object value) {
+        setText(value instanceof Integer ? StringUtils.formatMoney((Integer) value) : "");
+    }
+}
@@ -0,0 +1,124 @@
+package team22.UI;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A table model that reads each cell straight from a list of objects, instead of copying every object into a row of
+ * Strings up front. Each column declares the class of its values, so a row sorter compares numbers as numbers without
+ * having to parse them out of text
+ * @param <T> the type of object shown on each row
+ */
+class ObjectTableModel<T> extends AbstractTableModel {
+
+    /**
+     * Gets the value of one cell from a row's object
+     * @param <T> the type of object shown on each row
+     */
+    interface CellGetter<T> {
+        /**
+         * @param row the object shown on the row
+         * @param column the index of the column
+         * @return the value to show in that column - must be an instance of the column's class
+         */
+        Object get(T row, int column);
+    }
+
+    /**
+     * Stores an edited cell value back into a row's object
+     * @param <T> the type of object shown on each row
+     */
+    interface CellSetter<T> {
+        /**
+         * @param row the object shown on the row
+         * @param column the index of the column
+         * @param value the value entered - an instance of the column's class, or null if the cell was cleared
+         */
+        void set(T row, int column, Object value);
+    }
+
+    private final String[] titles;
+    private final Class<?>[] classes;
+    private final CellGetter<T> getter;
+    private List<T> rows = new ArrayList<>();
+
+    private int editableColumn = -1;
+    private CellSetter<T> setter = null;
+
+    /**
+     * @param titles the title of each column
+     * @param classes the class of the values in each column
+     * @param getter gets the value of a cell from a row's object
+     */
+    ObjectTableModel(String[] titles, Class<?>[] classes, CellGetter<T> getter) {
+        this.titles = titles;
+        this.classes = classes;
+        this.getter = getter;
+    }
+
+    /**
+     * Replaces every row in the table
+     * @param rows the objects to show, one per row - the list is used directly rather than copied
+     */
+    void setRows(List<T> rows) {
+        this.rows = rows;
+        fireTableDataChanged();
+    }
+
+    /**
+     * Lets the cells of one column be edited
+     * @param column the index of the column
+     * @param setter stores an edited value back into the row's object
+     */
+    void setEditableColumn(int column, CellSetter<T> setter) {
+        this.editableColumn = column;
+        this.setter = setter;
+    }
+
+    /**
+     * @param modelRow the index of the row in the model (use convertRowIndexToModel on a sorted table)
+     * @return the object shown on that row
+     */
+    T getRow(int modelRow) {
+        return rows.get(modelRow);
+    }
+
+    @Override
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return titles.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return titles[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return classes[column];
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        return getter.get(rows.get(row), column);
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return column == editableColumn;
+    }
+
+    @Override
+    public void setValueAt(Object value, int row, int column) {
+        if (column == editableColumn) {
+            setter.set(rows.get(row), column, value);
+            fireTableCellUpdated(row, column);
+        }
+    }
+}
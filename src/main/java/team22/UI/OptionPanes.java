@@ -3,6 +3,8 @@ package team22.UI;
 import javax.swing.*;
 import java.awt.*;
 import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * A utility class for working with JOptionPanes, to ensure that the look of our system is consistent
@@ -14,11 +16,17 @@ public class OptionPanes {
     public static final int WARNING = 2;
 
     /**
-     * Displays a JOptionPane showing that there has been an error
+     * Displays a JOptionPane showing that there has been an error - can be called from any thread
      * @param msg the error message to display
      * @param code the error code
      */
     public static void showErrorPane(String msg, int code) {
+        if (!SwingUtilities.isEventDispatchThread()) {
+            // A fatal error is usually followed by the program exiting, so wait for it to be seen first
+            showOnEventDispatchThread(() -> showErrorPane(msg, code), code == FATAL);
+            return;
+        }
+
         // Create a title and icon depending on the severity of the error
         String title;
         String icon;
@@ -36,9 +44,8 @@ public class OptionPanes {
                 title = "Warning!";
         }
 
-        Font dialogFont = Fonts.getSizedFont(Fonts.OPENSANS_REGULAR, 24);
         try {
-            int newImgDim = Fonts.getHeight(dialogFont) * 3 / 2;
+            int newImgDim = iconSize();
             Image failureIconImg = Images.loadSizedImage(icon, newImgDim, newImgDim);
             ImageIcon failureIcon = new ImageIcon(failureIconImg);
             JOptionPane.showMessageDialog(null, msg, title, JOptionPane.ERROR_MESSAGE, failureIcon);
@@ -49,13 +56,43 @@ public class OptionPanes {
     }
 
     /**
-     * Shows a success message
+     * Asks the user whether to try again after an error - must be called from the event dispatch thread
+     * @param msg the error message to display
+     * @param retry the text of the button that tries again
+     * @param giveUp the text of the button that gives up
+     * @return true if the user chose to try again
+     */
+    public static boolean showRetryPane(String msg, String retry, String giveUp) {
+        String title = "An error has occurred!";
+        Object[] options = new Object[]{retry, giveUp};
+
+        int choice;
+        try {
+            int newImgDim = iconSize();
+            Image failureIconImg = Images.loadSizedImage(Images.EXCLAMATION_CIRCLE, newImgDim, newImgDim);
+            ImageIcon failureIcon = new ImageIcon(failureIconImg);
+            choice = JOptionPane.showOptionDialog(null, msg, title, JOptionPane.YES_NO_OPTION, JOptionPane.ERROR_MESSAGE,
+                                                    failureIcon, options, retry);
+        } catch (IOException | NullPointerException | IllegalArgumentException ex) {
+            ex.printStackTrace();
+            choice = JOptionPane.showOptionDialog(null, msg, title, JOptionPane.YES_NO_OPTION, JOptionPane.ERROR_MESSAGE,
+                                                    null, options, retry);
+        }
+        return choice == 0;
+    }
+
+    /**
+     * Shows a success message - can be called from any thread
      * @param msg the message to display
      */
     public static void showSuccessPane(String msg) {
-        Font dialogFont = Fonts.getSizedFont(Fonts.OPENSANS_REGULAR, 24);
+        if (!SwingUtilities.isEventDispatchThread()) {
+            showOnEventDispatchThread(() -> showSuccessPane(msg), false);
+            return;
+        }
+
         try {
-            int newImgDim = Fonts.getHeight(dialogFont) * 3 / 2;
+            int newImgDim = iconSize();
             Image successIconImg = Images.loadSizedImage(Images.CHECK2_CIRCLE, newImgDim, newImgDim);
             ImageIcon successIcon = new ImageIcon(successIconImg);
             JOptionPane.showMessageDialog(null, msg, "Success!", JOptionPane.ERROR_MESSAGE, successIcon);
@@ -63,4 +100,40 @@ public class OptionPanes {
             JOptionPane.showMessageDialog(null, msg, "Success!", JOptionPane.ERROR_MESSAGE);
         }
     }
+
+    /**
+     * Starts loading the dialog icons in the background, so the first dialog shown doesn't have to wait for them
+     * @return a future that completes once the icons have loaded
+     */
+    public static CompletableFuture<Void> preloadIcons() {
+        return Images.preload(iconSize(), Images.X_CIRCLE, Images.EXCLAMATION_CIRCLE, Images.EXCLAMATION_CIRCLE_ORANGE, Images.CHECK2_CIRCLE);
+    }
+
+    /**
+     * @return the width and height of the icon shown in a dialog
+     */
+    private static int iconSize() {
+        return Fonts.getHeight(Fonts.getSizedFont(Fonts.OPENSANS_REGULAR, 24)) * 3 / 2;
+    }
+
+    /**
+     * Dialogs can only be shown from the event dispatch thread, so this is used when one is needed by a background task
+     * @param dialog shows the dialog
+     * @param wait whether to wait until the dialog has been closed - only when really needed, since it would deadlock if
+     *             the event dispatch thread was waiting on the calling thread
+     */
+    private static void showOnEventDispatchThread(Runnable dialog, boolean wait) {
+        if (!wait) {
+            SwingUtilities.invokeLater(dialog);
+            return;
+        }
+
+        try {
+            SwingUtilities.invokeAndWait(dialog);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (InvocationTargetException e) {
+            e.getCause().printStackTrace();
+        }
+    }
 }
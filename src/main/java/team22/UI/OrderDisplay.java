@@ -4,7 +4,9 @@ import team22.businessLogicLayer.StringUtils;
 import team22.dataAccessLayer.BikeComponent;
 import team22.dataAccessLayer.Customer;
 import team22.dataAccessLayer.Order;
+import team22.dataAccessLayer.OrderFilter;
 import team22.dataAccessLayer.OrderInfo;
+import team22.dataAccessLayer.ProgressResult;
 
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
@@ -13,19 +15,28 @@ import java.awt.event.ActionListener;
 import java.util.ArrayList;
 import java.util.Arrays;
 
-public class OrderDisplay extends JPanel {
+public class OrderDisplay extends JPanel implements Scrollable {
     private static final Font TITLE_FONT = Fonts.getSizedFont(Fonts.OPENSANS_SEMIBOLD, 20);
     private static final Font SUB_FONT = Fonts.getSizedFont(Fonts.OPENSANS_MEDIUM, 18);
     private static final Font DETAILS_FONT = Fonts.getSizedFont(Fonts.OPENSANS_REGULAR, 16);
 
+    /** The gap between order widgets */
+    private static final int ORDER_GAP = 35;
+
+    /** How far (in pixels) outside of the visible area to keep order widgets, so that scrolling doesn't flicker */
+    private static final int OVERSCAN = 400;
+
     /** The staff page (if any) that this is a child of */
     private StaffAccess parentStaffPage = null;
 
     /** The order tracker (if any) that this is a child of */
     private TrackOrder parentOrderTracker = null;
 
-    /** Stores the info in the orders to be displayed */
-    private OrderInfo[] orders;
+    /** One row for every order in the display, whether or not it currently has a widget */
+    private final ArrayList<OrderRow> rows = new ArrayList<>();
+
+    /** The height of a collapsed order widget, measured from the first widget built */
+    private int collapsedHeight = -1;
 
     /** Holds the order display in a JScrollPane */
     private JScrollPane orderScroller;
@@ -33,6 +44,51 @@ public class OrderDisplay extends JPanel {
     /** Sets the size of the JScrollPane */
     private Dimension scrollerDim;
 
+    /** How many orders to load at once when showing orders a page at a time */
+    private static final int ORDERS_PER_PAGE = 20;
+
+    /** How close (in pixels) the staff member has to scroll to the bottom before the next page is loaded */
+    private static final int LOAD_MORE_THRESHOLD = 600;
+
+    /** Whether orders are loaded a page at a time as the display is scrolled */
+    private boolean paged = false;
+
+    /** The conditions orders must match to be loaded when paged */
+    private OrderFilter pageFilter;
+
+    /** The last order number loaded, so that the next page can start after it */
+    private int lastOrderNumber = -1;
+
+    /** Whether there could be more pages of orders to load */
+    private boolean morePages = false;
+
+    /** Stops a page being requested while one is already being loaded */
+    private boolean loadingPage = false;
+
+    /** Pages and order details that are still loading - cancelled if the display is taken off screen */
+    private final BackgroundTasks.Group loadTasks = new BackgroundTasks.Group();
+
+    /**
+     * An order in the display. Widgets are only built for orders that are scrolled into view, and are thrown away
+     * again once they're scrolled out of view, so the row keeps everything needed to build the widget again
+     */
+    private static class OrderRow {
+        private final Order order;
+        private OrderInfo info;
+        private boolean expanded = false;
+        private boolean selected = false;
+        private JPanel widget = null;
+        private JCheckBox selectBox = null;
+        private int y;
+        private int height;
+
+        OrderRow(Order order, OrderInfo info, int height) {
+            this.order = order;
+            this.info = info;
+            this.height = height;
+        }
+    }
+
     /**
      * Creates an order display window
      * @param ois The orders to display
@@ -40,15 +96,15 @@ public class OrderDisplay extends JPanel {
      * @param size The size of the scroller
      */
     public OrderDisplay(OrderInfo[] ois, TrackOrder to, Dimension size) {
-        setLayout(new BoxLayout(this, BoxLayout.PAGE_AXIS));
+        setLayout(null);
         setBackground(Color.WHITE);
         setBorder(new EmptyBorder(15, 15, 15, 15));
         parentOrderTracker = to;
-        orders = ois;
 
         scrollerDim = size;
 
         initOrderPanel();
+        addOrderRows(ois);
     }
 
     /**
@@ -58,15 +114,45 @@ public class OrderDisplay extends JPanel {
      * @param size The size of the scroller
      */
     public OrderDisplay(OrderInfo[] ois, StaffAccess sa, Dimension size) {
-        setLayout(new BoxLayout(this, BoxLayout.PAGE_AXIS));
+        setLayout(null);
+        setBackground(Color.WHITE);
+        setBorder(new EmptyBorder(15, 15, 15, 15));
+        parentStaffPage = sa;
+
+        scrollerDim = size;
+
+        initOrderPanel();
+        addOrderRows(ois);
+    }
+
+    /**
+     * Creates an order display window which loads orders a page at a time, as the staff member scrolls down
+     * @param filter The conditions orders must match to be displayed
+     * @param firstPage The first page of orders, from getFirstPage
+     * @param sa The staff page that the staff buttons should interact with
+     * @param size The size of the scroller
+     */
+    public OrderDisplay(OrderFilter filter, ArrayList<Order> firstPage, StaffAccess sa, Dimension size) {
+        setLayout(null);
         setBackground(Color.WHITE);
         setBorder(new EmptyBorder(15, 15, 15, 15));
         parentStaffPage = sa;
-        orders = ois;
+        paged = true;
+        pageFilter = filter;
 
         scrollerDim = size;
 
         initOrderPanel();
+        addPage(firstPage);
+    }
+
+    /**
+     * Loads the first page of orders for a paged display - this hits the database, so should be run in the background
+     * @param filter The conditions orders must match to be displayed
+     * @return the first page of orders (empty if there are none)
+     */
+    public static ArrayList<Order> getFirstPage(OrderFilter filter) {
+        return Order.getPage(filter, -1, ORDERS_PER_PAGE);
     }
 
     /**
@@ -82,26 +168,249 @@ public class OrderDisplay extends JPanel {
         orderScroller.setPreferredSize(scrollerDim);
         orderScroller.setMaximumSize(scrollerDim);
 
-        for (int i=0; i<orders.length; i++) {
-            add(buildOrderWidget(orders[i]));
-            if (i<orders.length-1) {
-                // Only add a strut beneath the order widget if there is another one coming afterwards
-                add(Box.createVerticalStrut(35));
+        // Build widgets for the orders that have just scrolled into view
+        orderScroller.getViewport().addChangeListener(e -> layoutVisibleRows());
+
+        if (paged) {
+            orderScroller.getVerticalScrollBar().addAdjustmentListener(e -> {
+                JScrollBar bar = orderScroller.getVerticalScrollBar();
+                if (morePages && bar.getValue() + bar.getVisibleAmount() >= bar.getMaximum() - LOAD_MORE_THRESHOLD) {
+                    loadNextPage();
+                }
+            });
+        }
+    }
+
+    /**
+     * Adds a row for each order to the bottom of the display
+     * @param ois The orders to add
+     */
+    private void addOrderRows(OrderInfo[] ois) {
+        for (OrderInfo oi : ois) {
+            addOrderRow(oi.getOrder(), oi);
+        }
+        revalidate();
+        repaint();
+    }
+
+    /**
+     * Adds a row for an order to the bottom of the display - its widget isn't built until it's scrolled into view
+     * @param o The order to add
+     * @param oi The rest of the order's details, or null to load them when the order is expanded
+     */
+    private void addOrderRow(Order o, OrderInfo oi) {
+        OrderRow row = new OrderRow(o, oi, collapsedHeight);
+        if (collapsedHeight < 0) {
+            // Every collapsed widget is the same height, so measure the first one and use it for the rest
+            row.widget = buildOrderWidget(row);
+            add(row.widget);
+            collapsedHeight = row.height = row.widget.getPreferredSize().height;
+        }
+        rows.add(row);
+    }
+
+    /**
+     * Loads the next page of orders in the background, and adds them to the bottom of the display once loaded
+     */
+    private void loadNextPage() {
+        if (loadingPage) {
+            return;
+        }
+        loadingPage = true;
+
+        // Only the Orders rows are loaded here - the rest of each order is loaded if it gets expanded
+        loadTasks.run(this, () -> Order.getPage(pageFilter, lastOrderNumber, ORDERS_PER_PAGE), page -> {
+            loadingPage = false;
+            addPage(page);
+        }, () -> loadingPage = false);
+    }
+
+    /**
+     * Adds a page of orders to the bottom of the display
+     * @param page The orders to add
+     */
+    private void addPage(ArrayList<Order> page) {
+        morePages = page.size() == ORDERS_PER_PAGE;
+        if (!page.isEmpty()) {
+            lastOrderNumber = page.get(page.size() - 1).getOrderNumber();
+        }
+
+        for (Order o : page) {
+            addOrderRow(o, null);
+        }
+        revalidate();
+        repaint();
+
+        // Keep loading until the scroller is full, otherwise there'd be no scrolling to trigger the next page
+        if (morePages && getPreferredSize().height < scrollerDim.height) {
+            loadNextPage();
+        }
+    }
+
+    /**
+     * Called by Swing when the display is taken off screen (i.e. the user has moved to another page), so anything still
+     * loading for it can be dropped
+     */
+    @Override
+    public void removeNotify() {
+        loadTasks.cancelAll();
+        loadingPage = false;
+        super.removeNotify();
+    }
+
+    /**
+     * @return the orders the staff member has ticked, so they can be progressed together
+     */
+    public ArrayList<Order> getSelectedOrders() {
+        ArrayList<Order> selected = new ArrayList<>();
+        for (OrderRow row : rows) {
+            if (row.selected) {
+                selected.add(row.order);
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * Ticks (or unticks) every order that can be progressed out of those loaded so far. A paged display only loads
+     * more orders as it's scrolled down, so orders matching the filter that haven't been loaded yet are left unticked
+     * @param selected true to tick the orders, false to untick them
+     */
+    public void selectAll(boolean selected) {
+        for (OrderRow row : rows) {
+            if (isProgressable(row.order)) {
+                row.selected = selected;
+                if (row.selectBox != null) {
+                    row.selectBox.setSelected(selected);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param o an order in the display
+     * @return true if the order can be moved on to another status
+     */
+    private static boolean isProgressable(Order o) {
+        return o.getStatus().equals("PENDING") || o.getStatus().equals("CONFIRMED");
+    }
+
+    /**
+     * @return true if at least one order is being displayed
+     */
+    public boolean hasOrders() {
+        return !rows.isEmpty();
+    }
+
+    /**
+     * @return the height needed to fit every order (the width always matches the scroller)
+     */
+    @Override
+    public Dimension getPreferredSize() {
+        Insets insets = getInsets();
+        int height = insets.top + insets.bottom;
+        for (OrderRow row : rows) {
+            height += row.height;
+        }
+        height += Math.max(0, rows.size() - 1) * ORDER_GAP;
+
+        return new Dimension(getWidth(), height);
+    }
+
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+        return scrollerDim;
+    }
+
+    @Override
+    public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return 16;  // Make scroll speed normal
+    }
+
+    @Override
+    public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return visibleRect.height;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportWidth() {
+        return true;  // Order widgets are always as wide as the scroller
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportHeight() {
+        return false;
+    }
+
+    /**
+     * Called by Swing whenever the display is revalidated
+     */
+    @Override
+    public void doLayout() {
+        layoutVisibleRows();
+    }
+
+    /**
+     * Positions every row, and makes sure that only the rows in (or near) the visible area have widgets
+     */
+    private void layoutVisibleRows() {
+        Insets insets = getInsets();
+        int width = getWidth() - insets.left - insets.right;
+
+        Rectangle visible = getVisibleRect();
+        int top = visible.y - OVERSCAN;
+        int bottom = visible.y + visible.height + OVERSCAN;
+
+        boolean changed = false;
+        int y = insets.top;
+        for (OrderRow row : rows) {
+            row.y = y;
+            y += row.height + ORDER_GAP;
+
+            boolean inView = row.y + row.height >= top && row.y <= bottom;
+            if (inView && row.widget == null) {
+                row.widget = buildOrderWidget(row);
+                add(row.widget);
+                changed = true;
+            } else if (!inView && row.widget != null) {
+                remove(row.widget);
+                row.widget = null;
+                row.selectBox = null;
+                changed = true;
+            }
+
+            if (row.widget != null) {
+                row.widget.setBounds(insets.left, row.y, width, row.height);
+                row.widget.validate();
             }
         }
+
+        if (changed) {
+            repaint();
+        }
     }
 
     /**
-     * @param oi The OrderInfo to build a widget for
+     * Called when the height of a row's widget may have changed (i.e. it has been expanded or collapsed)
+     * @param row the row to measure again
+     */
+    private void rowResized(OrderRow row) {
+        row.height = row.widget.getPreferredSize().height;
+        revalidate();
+        repaint();
+    }
+
+    /**
+     * @param row The order to build a widget for
      * @return a JPanel containing all necessary information about the order
      */
-    private JPanel buildOrderWidget(OrderInfo oi) {
+    private JPanel buildOrderWidget(OrderRow row) {
+        Order o = row.order;
+
         JPanel order = new JPanel();
         order.setLayout(new BoxLayout(order, BoxLayout.PAGE_AXIS));
         order.setBorder(new EmptyBorder(20, 20, 20, 20));
 
-        Order o = oi.getOrder();
-
         JLabel titleLabel = new JLabel("Order Number: " + o.getOrderNumber());
         titleLabel.setFont(TITLE_FONT);
 
@@ -134,6 +443,18 @@ public class OrderDisplay extends JPanel {
 
         orderDetailsButton.add(orderDetails);
         orderDetailsButton.add(Box.createHorizontalGlue());
+
+        // Staff can tick orders to progress them all at once from the orders page
+        if (parentStaffPage != null && isProgressable(o)) {
+            JCheckBox selectBox = new JCheckBox("Select");
+            selectBox.setFont(SUB_FONT);
+            selectBox.setSelected(row.selected);
+            selectBox.addActionListener(e -> row.selected = selectBox.isSelected());
+            row.selectBox = selectBox;
+
+            orderDetailsButton.add(selectBox);
+            orderDetailsButton.add(Box.createHorizontalStrut(15));
+        }
         orderDetailsButton.add(expandOrderButton);
 
         orderDetailsButton.setAlignmentX(Component.LEFT_ALIGNMENT);
@@ -143,47 +464,109 @@ public class OrderDisplay extends JPanel {
         JPanel detailsPanel = new JPanel();
         detailsPanel.setLayout(new BoxLayout(detailsPanel, BoxLayout.PAGE_AXIS));
 
-        buildOrderInfo(detailsPanel, oi);
-
         detailsPanel.setAlignmentX(Component.LEFT_ALIGNMENT);
         detailsPanel.setVisible(false);
         order.add(detailsPanel);
 
-        expandOrderButton.addActionListener(e -> expandOrder(expandOrderButton, detailsPanel));
+        // Details are only built the first time the order is expanded
+        expandOrderButton.addActionListener(e -> {
+            if (detailsPanel.getComponentCount() > 0) {
+                expandOrder(row, expandOrderButton, detailsPanel);
+            } else if (row.info != null) {
+                buildOrderInfo(detailsPanel, row.info);
+                expandOrder(row, expandOrderButton, detailsPanel);
+            } else {
+                loadOrderInfo(row, expandOrderButton, detailsPanel);
+            }
+        });
+
+        // A widget being rebuilt after scrolling back into view should look the same as when it was scrolled away.
+        // Orders are only ever expanded once their details have loaded, so there's no need to load anything here
+        if (row.expanded && row.info != null) {
+            buildOrderInfo(detailsPanel, row.info);
+            detailsPanel.setVisible(true);
+            setExpandListener(row, expandOrderButton, detailsPanel, false);
+        }
 
         return order;
     }
 
+    /**
+     * Loads the details of an order in the background, then builds them and expands the order
+     * @param row the order to load the details of
+     * @param expandOrderButton the button that was pressed to expand the order
+     * @param details the hidden JPanel to place the details on
+     */
+    private void loadOrderInfo(OrderRow row, JButton expandOrderButton, JPanel details) {
+        expandOrderButton.setEnabled(false);
+        expandOrderButton.setText("Loading order details...");
+
+        loadTasks.run(this, () -> OrderInfo.get(row.order.getOrderNumber())[0], oi -> {
+            expandOrderButton.setEnabled(true);
+            expandOrderButton.setText("Expand order details");
+
+            if (oi == null) {
+                OptionPanes.showErrorPane("Couldn't load the details of order #" + row.order.getOrderNumber() + ".\nIt may have been deleted.", OptionPanes.WARNING);
+                return;
+            }
+            row.info = oi;
+
+            // If the order was scrolled out of view while loading, its widget is gone - it can be expanded when it's back
+            if (row.widget != null && SwingUtilities.isDescendingFrom(details, row.widget)) {
+                buildOrderInfo(details, oi);
+                expandOrder(row, expandOrderButton, details);
+            }
+        }, () -> {
+            expandOrderButton.setEnabled(true);
+            expandOrderButton.setText("Expand order details");
+        });
+    }
+
     /**
      * Expands an order to show the full details
+     * @param row the order being expanded
      * @param expandOrderButton the button to expand/hide the details
      * @param details the hidden JPanel containing the details
      */
-    private void expandOrder(JButton expandOrderButton, JPanel details) {
+    private void expandOrder(OrderRow row, JButton expandOrderButton, JPanel details) {
         details.setVisible(true);
-        expandOrderButton.setText("Collapse order details");
-
-        for (ActionListener l : expandOrderButton.getActionListeners()) {
-            expandOrderButton.removeActionListener(l);
-        }
-
-        expandOrderButton.addActionListener(e -> collapseOrder(expandOrderButton, details));
+        row.expanded = true;
+        setExpandListener(row, expandOrderButton, details, false);
+        rowResized(row);
     }
 
     /**
      * Collapses an order, hiding the details
+     * @param row the order being collapsed
      * @param expandOrderButton the button that shows/hides order details
      * @param details the visible order details
      */
-    private void collapseOrder(JButton expandOrderButton, JPanel details) {
+    private void collapseOrder(OrderRow row, JButton expandOrderButton, JPanel details) {
         details.setVisible(false);
-        expandOrderButton.setText("Expand order details");
+        row.expanded = false;
+        setExpandListener(row, expandOrderButton, details, true);
+        rowResized(row);
+    }
+
+    /**
+     * Switches the expand button between expanding and collapsing the order
+     * @param row the order that the button belongs to
+     * @param expandOrderButton the button that shows/hides order details
+     * @param details the order details
+     * @param expand true if the button should now expand the order, false if it should collapse it
+     */
+    private void setExpandListener(OrderRow row, JButton expandOrderButton, JPanel details, boolean expand) {
+        expandOrderButton.setText(expand ? "Expand order details" : "Collapse order details");
 
         for (ActionListener l : expandOrderButton.getActionListeners()) {
             expandOrderButton.removeActionListener(l);
         }
 
-        expandOrderButton.addActionListener(e -> expandOrder(expandOrderButton, details));
+        if (expand) {
+            expandOrderButton.addActionListener(e -> expandOrder(row, expandOrderButton, details));
+        } else {
+            expandOrderButton.addActionListener(e -> collapseOrder(row, expandOrderButton, details));
+        }
     }
 
     /**
@@ -207,17 +590,20 @@ public class OrderDisplay extends JPanel {
           addressDisplay[1],
           addressDisplay[2]
         });
-        buildInfoBox(order, new String[]{
+        ArrayList<String> bikeInfo = new ArrayList<>(Arrays.asList(
           "Bike info: ",
           "Bike name: " + o.getBikeName(),
           "Bike brand: " + StringUtils.titleCase(o.getBikeBrand()),
           "Bike serial #: " + o.getBikeSerial(),
-          "Components: ",
-          " ¬ " + comps[0].getDisplayName() + " (Serial #: " + comps[0].getSerial() + ") - " + StringUtils.formatMoney(comps[0].getPrice()),
-          " ¬ " + comps[1].getDisplayName() + " (Serial #: " + comps[1].getSerial() + ") - " + StringUtils.formatMoney(comps[1].getPrice()),
-          " ¬ " + comps[2].getDisplayName() + " (Serial #: " + comps[2].getSerial() + ") - " + StringUtils.formatMoney(comps[2].getPrice()),
-          "Total price: " + StringUtils.formatMoney(comps[0].getPrice() + comps[1].getPrice() + comps[2].getPrice())
-        });
+          "Components: "
+        ));
+        int totalPrice = 0;
+        for (BikeComponent bc : comps) {
+            bikeInfo.add(" ¬ " + bc.getDisplayName() + " (Serial #: " + bc.getSerial() + ") - " + StringUtils.formatMoney(bc.getPrice()));
+            totalPrice += bc.getPrice();
+        }
+        bikeInfo.add("Total price: " + StringUtils.formatMoney(totalPrice));
+        buildInfoBox(order, bikeInfo.toArray(new String[0]));
 
         // Add the necessary buttons
         if (parentStaffPage != null) {
@@ -287,8 +673,12 @@ public class OrderDisplay extends JPanel {
             deleteButton.addActionListener(e -> {
                 if (JOptionPane.showConfirmDialog(null, "Are you sure you want to delete this order?",
                   "Delete order?", JOptionPane.OK_CANCEL_OPTION) == JOptionPane.YES_OPTION) {
-                    Order.deleteOrder(o.getOrderNumber());
-                    parentOrderTracker.buildOrderDisplay(Arrays.stream(ois).filter(info -> info.getOrder().getOrderNumber() != o.getOrderNumber()).toArray(OrderInfo[]::new));
+                    deleteButton.setEnabled(false);
+                    BackgroundTasks.run(this, () -> {
+                        Order.deleteOrder(o.getOrderNumber());
+                        return o;
+                    }, deleted -> parentOrderTracker.buildOrderDisplay(Arrays.stream(ois).filter(info -> info.getOrder().getOrderNumber() != deleted.getOrderNumber()).toArray(OrderInfo[]::new)),
+                      () -> deleteButton.setEnabled(true));
                 }
             });
 
@@ -314,7 +704,7 @@ public class OrderDisplay extends JPanel {
         /*
         Different buttons needed for different statuses - if pending, need a button to receive payment from customer
         and then confirm the order
-        If confirmed, need a button to check quantities of the order's components, and then fulfill it
+        If confirmed, need a button to fulfil it from the stock reserved when it was confirmed
          */
         if (o.getStatus().equals("PENDING")) {
             JButton progressButton = new JButton("Receive Payment from Customer");
@@ -324,12 +714,11 @@ public class OrderDisplay extends JPanel {
             progressButton.setMaximumSize(new Dimension(progressWidth, 50));
             progressButton.addActionListener(e -> {
                 if (JOptionPane.showConfirmDialog(null, "Received payment from customer?", "Customer payment", JOptionPane.YES_NO_CANCEL_OPTION) == JOptionPane.YES_OPTION) {
-                    if (oi.progressOrder(parentStaffPage.getStaffName())) {
-                        parentStaffPage.buildOrdersPage();
-                        OptionPanes.showSuccessPane("Order #" + o.getOrderNumber() + " confirmed!");
-                    } else {
-                        OptionPanes.showErrorPane("Error progressing order!\nOrder remains unchanged.", OptionPanes.RECOVERABLE);
-                    }
+                    String staffName = parentStaffPage.getStaffName();
+                    progressButton.setEnabled(false);
+                    // Confirming reserves the order's stock, so fails if there isn't enough left unreserved
+                    BackgroundTasks.run(this, () -> oi.progressOrder(staffName),
+                      result -> showProgressResult(result, o, "confirmed", progressButton), () -> progressButton.setEnabled(true));
                 }
             });
 
@@ -346,25 +735,11 @@ public class OrderDisplay extends JPanel {
                     return;
                 }
 
-                ArrayList<BikeComponent> insufficientQtys = oi.missingComps();
-                if (insufficientQtys == null) {
-                    OptionPanes.showErrorPane("Error fetching product quantities. Please try again.", OptionPanes.RECOVERABLE);
-                } else if (insufficientQtys.size() > 0) {
-                    StringBuilder sb = new StringBuilder("Insufficient Quantities for:");
-                    for (BikeComponent bc : insufficientQtys) {
-                        sb.append("\n").append(bc.getDisplayName()).append(" (Serial #: ").append(bc.getSerial()).append(")")
-                          .append("\n-Available: ").append(bc.getQuantity())
-                          .append("\n-Needed: ").append(bc.getDisplayName().contains("Wheel") ? '2' : '1');
-                    }
-                    OptionPanes.showErrorPane(sb.toString(), OptionPanes.WARNING);
-                } else {
-                    if (!oi.progressOrder(parentStaffPage.getStaffName())) {
-                        OptionPanes.showErrorPane("Error progressing order!\nOrder remains unchanged.", OptionPanes.WARNING);
-                    } else {
-                        parentStaffPage.buildOrdersPage();
-                        OptionPanes.showSuccessPane("Order #" + o.getOrderNumber() + " fulfilled!");
-                    }
-                }
+                // Fulfilling takes the stock reserved when the order was confirmed, so nobody else can have used it
+                String staffName = parentStaffPage.getStaffName();
+                progressButton.setEnabled(false);
+                BackgroundTasks.run(this, () -> oi.progressOrder(staffName),
+                  result -> showProgressResult(result, o, "fulfilled", progressButton), () -> progressButton.setEnabled(true));
             });
 
             actionButtons.add(progressButton);
@@ -375,6 +750,35 @@ public class OrderDisplay extends JPanel {
         order.add(actionButtons);
     }
 
+    /**
+     * Tells the staff member how progressing an order went, and shows the orders again if it changed
+     * @param result the outcome of progressing the order
+     * @param o the order that was progressed
+     * @param newStatus what happened to the order if it was progressed, e.g. "confirmed"
+     * @param progressButton the button that progressed the order, to enable again if it can be retried
+     */
+    private void showProgressResult(ProgressResult result, Order o, String newStatus, JButton progressButton) {
+        switch (result) {
+            case PROGRESSED:
+                parentStaffPage.buildOrdersPage();
+                OptionPanes.showSuccessPane("Order #" + o.getOrderNumber() + " " + newStatus + "!");
+                break;
+            case INSUFFICIENT_STOCK:
+                progressButton.setEnabled(true);
+                OptionPanes.showErrorPane("There isn't enough stock for order #" + o.getOrderNumber() + ".\nPlease wait for stock to be replenished." +
+                                            "\nOrder remains unchanged.", OptionPanes.WARNING);
+                break;
+            case ALREADY_PROGRESSED:
+                parentStaffPage.buildOrdersPage();
+                OptionPanes.showErrorPane("Order #" + o.getOrderNumber() + " has already been changed by someone else.", OptionPanes.WARNING);
+                break;
+            default:
+                progressButton.setEnabled(true);
+                OptionPanes.showErrorPane("Error progressing order!\nOrder remains unchanged.", OptionPanes.RECOVERABLE);
+                break;
+        }
+    }
+
     /**
      * @return the JScrollPane containing the order display
      */
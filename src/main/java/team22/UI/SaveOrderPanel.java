@@ -10,6 +10,8 @@ import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import java.awt.*;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.function.Supplier;
 
 public class SaveOrderPanel extends JPanel {
     private int height;
@@ -135,14 +137,14 @@ public class SaveOrderPanel extends JPanel {
 
         if (existing) {
             detailsSubmit.addActionListener(e -> {
-                if (detailsForm.validInputs()) {
-                    onSaveOrderActionExistingCustomer(detailsForm, order);
+                if (detailsForm.validInputs() && isOrderComplete()) {
+                    onSaveOrderActionExistingCustomer(detailsForm, order, detailsSubmit, returnButton);
                 }
             });
         } else {
             detailsSubmit.addActionListener(e -> {
-                if (detailsForm.validInputs()) {
-                    onSaveOrderActionNewCustomer(detailsForm, order);
+                if (detailsForm.validInputs() && isOrderComplete()) {
+                    onSaveOrderActionNewCustomer(detailsForm, order, detailsSubmit, returnButton);
                 }
             });
         }
@@ -159,8 +161,9 @@ public class SaveOrderPanel extends JPanel {
      * Calls saveOrderNewCustomer
      * @param df the DetailsForm from which to get a customer's details
      * @param order the components of the bike being checked out
+     * @param buttons the buttons to disable while the order is being placed
      */
-    private void onSaveOrderActionNewCustomer(DetailsForm df, BikeComponent[] order) {
+    private void onSaveOrderActionNewCustomer(DetailsForm df, BikeComponent[] order, JButton... buttons) {
         String bikeName = df.getInput("Bike Name");
         String forename = df.getInput("Forename");
         String surname = df.getInput("Surname");
@@ -168,32 +171,70 @@ public class SaveOrderPanel extends JPanel {
         String streetName = df.getInput("Street Name");
         String cityName = df.getInput("City/Town");
         String postcode = df.getInput("Postcode");
-        int orderNum = SaveOrder.saveOrderNewCustomer(forename, surname, postcode, houseNum, streetName, cityName,
-                        bikeName, (FrameSet) order[0], (Handlebar) order[1], (Wheel) order[2]);
-        if (orderNum == -1) {
-            showOrderFailedDialog();
-        } else {
-            showOrderSuccessDialog(orderNum);
-        }
+        FrameSet frameSet = (FrameSet) order[0];
+        Handlebar handlebar = (Handlebar) order[1];
+        Wheel wheel = (Wheel) order[2];
+        placeOrder(() -> SaveOrder.saveOrderNewCustomer(forename, surname, postcode, houseNum, streetName, cityName,
+                        bikeName, frameSet, handlebar, wheel), buttons);
     }
 
     /**
      * Calls saveOrderExistingCustomer
      * @param df the DetailsForm from which to get a customer's details
      * @param order the components of the bike being checked out
+     * @param buttons the buttons to disable while the order is being placed
      */
-    private void onSaveOrderActionExistingCustomer(DetailsForm df, BikeComponent[] order) {
+    private void onSaveOrderActionExistingCustomer(DetailsForm df, BikeComponent[] order, JButton... buttons) {
         String bikeName = df.getInput("Bike Name");
         String forename = df.getInput("Forename");
         String surname = df.getInput("Surname");
         int houseNum = Integer.parseInt(df.getInput("House Number"));
         String postcode = df.getInput("Postcode");
-        int orderNum = SaveOrder.saveOrderExistingCustomer(forename, surname, postcode, houseNum, bikeName,
-                                                                (FrameSet) order[0], (Handlebar) order[1], (Wheel) order[2]);
-        if (orderNum == -1) {
-            showOrderFailedDialog();
-        } else {
-            showOrderSuccessDialog(orderNum);
+        FrameSet frameSet = (FrameSet) order[0];
+        Handlebar handlebar = (Handlebar) order[1];
+        Wheel wheel = (Wheel) order[2];
+        placeOrder(() -> SaveOrder.saveOrderExistingCustomer(forename, surname, postcode, houseNum, bikeName,
+                                                                frameSet, handlebar, wheel), buttons);
+    }
+
+    /**
+     * Checks that every component is still on the bike - the bike builder takes off any that are deleted or run out of
+     * stock while checking out
+     * @return true if the order can be placed, otherwise false, having told the customer
+     */
+    private boolean isOrderComplete() {
+        if (Arrays.asList(order).contains(null)) {
+            OptionPanes.showErrorPane("Part of your bike is no longer available.\nPlease return to the bike builder and choose a replacement.",
+                                        OptionPanes.WARNING);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Places an order in the background, then tells the customer whether it went through
+     * @param save saves the order, returning the order number or -1 if it failed
+     * @param buttons the buttons to disable while the order is being placed, so the customer can't leave or place it twice
+     */
+    private void placeOrder(Supplier<Integer> save, JButton... buttons) {
+        setButtonsEnabled(buttons, false);
+        BackgroundTasks.run(this, save, orderNum -> {
+            setButtonsEnabled(buttons, true);
+            if (orderNum == -1) {
+                showOrderFailedDialog();
+            } else {
+                showOrderSuccessDialog(orderNum);
+            }
+        }, () -> setButtonsEnabled(buttons, true));
+    }
+
+    /**
+     * @param buttons the buttons to enable or disable
+     * @param enabled whether the buttons should be enabled
+     */
+    private void setButtonsEnabled(JButton[] buttons, boolean enabled) {
+        for (JButton button : buttons) {
+            button.setEnabled(enabled);
         }
     }
 
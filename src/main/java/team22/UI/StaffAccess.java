@@ -2,19 +2,20 @@ package team22.UI;
 
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
-import javax.swing.table.DefaultTableModel;
-import javax.swing.table.TableCellRenderer;
-import javax.swing.table.TableColumn;
-import javax.swing.table.TableModel;
-import javax.swing.table.TableRowSorter;
 
 import team22.businessLogicLayer.Accounts;
 import team22.businessLogicLayer.Sanitisation;
+import team22.businessLogicLayer.Validation;
 import team22.dataAccessLayer.*;
 
 import java.awt.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Comparator;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
 
 
 public class StaffAccess extends JPanel {
@@ -29,10 +30,17 @@ public class StaffAccess extends JPanel {
 
 	private final JPanel CONTENT_PANE;
 
-	private OrderInfo[] allOrders;
-
 	private CustomerInfo[] allCustomers;
 
+	/** Everything the current page is loading - cancelled whenever the staff member moves to another page */
+	private final BackgroundTasks.Group pageTasks = new BackgroundTasks.Group();
+
+	/** The orders currently shown on the orders page (null if none are shown) */
+	private OrderDisplay shownOrders = null;
+
+	/** How many order numbers to list in each line of the summary shown after progressing several orders */
+	private static final int MAX_LISTED_ORDERS = 20;
+
 	/**
 	 * The Staff Access UI panel
 	 * @param width the width of the page
@@ -89,6 +97,7 @@ public class StaffAccess extends JPanel {
 	 * Builds the staff login page
 	 */
 	private void buildLoginPage() {
+		pageTasks.cancelAll();
 		removeAll();
 		setLayout(new GridBagLayout());  // Use GridBagLayout to centre the form.
 
@@ -132,13 +141,26 @@ public class StaffAccess extends JPanel {
 			if (!loginForm.validInputs()) {
 				return;
 			}
-			StaffMember acc = Accounts.login(loginForm.getInput("Username"), loginForm.getPasswordInput("Password"));
-			if (acc == null) {
-				incorrectLoginHint.setText("Invalid username/password!");
-			} else {
-				loggedInStaff = acc;
-				buildLandingPage();
-			}
+			String username = loginForm.getInput("Username");
+			char[] password = loginForm.getPasswordInput("Password");
+
+			// Hashing the password is deliberately slow, so keep it off the event dispatch thread
+			submit.setEnabled(false);
+			submit.setText("Logging in...");
+			incorrectLoginHint.setText("");
+			pageTasks.run(this, () -> Accounts.login(username, password), acc -> {
+				submit.setEnabled(true);
+				submit.setText("Log in");
+				if (acc == null) {
+					incorrectLoginHint.setText("Invalid username/password!");
+				} else {
+					loggedInStaff = acc;
+					buildLandingPage();
+				}
+			}, () -> {
+				submit.setEnabled(true);
+				submit.setText("Log in");
+			});
 		});
 
 		revalidate();
@@ -149,6 +171,7 @@ public class StaffAccess extends JPanel {
 	 * Builds the staff landing page, containing all of the buttons they will need to access their pages
 	 */
 	private void buildLandingPage() {
+		pageTasks.cancelAll();
 		removeAll();
 		CONTENT_PANE.removeAll();
 		Font titleFont = Fonts.getSizedFont(Fonts.OPENSANS_LIGHT, 24);
@@ -213,6 +236,7 @@ public class StaffAccess extends JPanel {
 	 * Builds the customer view page - shows CustomerInfo objects in a table
 	 */
 	private void buildCustomerPage() {
+		pageTasks.cancelAll();
 		removeAll();
 		CONTENT_PANE.removeAll();
 
@@ -222,61 +246,24 @@ public class StaffAccess extends JPanel {
 		title.setFont(titleFont);
 		title.setAlignmentX(Component.CENTER_ALIGNMENT);
 		
-		DefaultTableModel model = new DefaultTableModel();
+		// Cells are read straight from the customers, so the ID column sorts as a number without being parsed
+		ObjectTableModel<CustomerInfo> model = new ObjectTableModel<>(new String[]{"ID", "Name", "Address"},
+			new Class<?>[]{Integer.class, String.class, String.class}, (ci, col) -> {
+				switch (col) {
+					case 0: return ci.getCustomer().getCustomerID();
+					case 1: return ci.getCustomer().getName();
+					default: return ci.getAddress().toString();
+				}
+			});
 		JTable table = new JTable(model);
-		model.addColumn("ID");
-		model.addColumn("Name");
-		model.addColumn("Address");
-
-		allCustomers = CustomerInfo.getAll().toArray(new CustomerInfo[0]);
-
-		for (CustomerInfo ci : allCustomers) {
-			String[] rowData = {String.valueOf(ci.getCustomer().getCustomerID()), ci.getCustomer().getName(), ci.getAddress().toString()};
-			model.addRow(rowData);
-		}
 
 		table.setFont(Fonts.getSizedFont(Fonts.OPENSANS_LIGHT, 16));
-		table.setDefaultEditor(Object.class, null);
 		table.setAutoCreateRowSorter(true);
 		table.getTableHeader().setReorderingAllowed(false);
         table.getTableHeader().setResizingAllowed(false);
 		table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
-
-		TableRowSorter<TableModel> sorter = new TableRowSorter<>();
-        sorter.setModel(table.getModel());
-
-		Comparator<String> numComparator = (o1, o2) -> {
-            int int1 = Integer.parseInt(o1);
-            int int2 = Integer.parseInt(o2);
-            return int1 - int2;
-        };
-
-        sorter.setComparator(0, numComparator);
-
-		table.setRowSorter(sorter);
 		table.getRowSorter().toggleSortOrder(0);
 
-		// Resize columns to fit data
-		for (int col=0; col<table.getColumnCount(); col++) {
-            TableColumn col1 = table.getColumnModel().getColumn(col);
-
-            int width = col1.getMinWidth() + 50;
-            int max = col1.getMaxWidth();
-
-            for (int row1=0; row1<table.getRowCount(); row1++) {
-                TableCellRenderer tcr = table.getCellRenderer(row1, col);
-                int newWidth = table.prepareRenderer(tcr, row1, col).getPreferredSize().width + table.getIntercellSpacing().width;
-                width = Math.max(width, newWidth);
-
-                if (width >= max) {
-                    width = max;
-                    break;
-                }
-            }
-
-            col1.setPreferredWidth(width);
-        }
-
 		JScrollPane scroller = new JScrollPane(table);
         scroller.setViewportBorder(null);
         scroller.getVerticalScrollBar().setUnitIncrement(16); // Make scroll speed normal
@@ -285,39 +272,75 @@ public class StaffAccess extends JPanel {
 		scroller.setPreferredSize(new Dimension(PAGE_SIZE.width - 30, table.getRowHeight() * 22));
 		scroller.setMaximumSize(new Dimension(PAGE_SIZE.width - 30, table.getRowHeight() * 22));
 
+		// Show a placeholder until the customers have loaded
+		JPanel loadingPanel = BackgroundTasks.createLoadingPanel("Loading customers...", scroller.getPreferredSize());
+
         CONTENT_PANE.add(title);
 		CONTENT_PANE.add(Box.createVerticalStrut(10));
-		CONTENT_PANE.add(scroller);
+		CONTENT_PANE.add(loadingPanel);
 
 		contentPaneFooter(true);
 
+		pageTasks.run(this, () -> CustomerInfo.getAll().toArray(new CustomerInfo[0]), customers -> {
+			allCustomers = customers;
+			model.setRows(Arrays.asList(allCustomers));
+
+			// Resize columns to fit data - only a sample of rows is measured, so this stays quick on big tables
+			ColumnSizer.fitColumns(table);
+
+			int index = CONTENT_PANE.getComponentZOrder(loadingPanel);
+			CONTENT_PANE.remove(loadingPanel);
+			CONTENT_PANE.add(scroller, index);
+			CONTENT_PANE.revalidate();
+			CONTENT_PANE.repaint();
+		});
 	}
 
 	/**
 	 * Builds the orders page - shows all orders, and allows a staff member to filter them
 	 */
 	protected void buildOrdersPage() {
+		pageTasks.cancelAll();
 		removeAll();
 		CONTENT_PANE.removeAll();
 
-		allOrders = OrderInfo.getAll().toArray(new OrderInfo[0]);
+		Font filterFont = Fonts.getSizedFont(Fonts.OPENSANS_MEDIUM, 16);
+		int actionHeight = Fonts.getHeight(filterFont) * 2;
+
+		Dimension orderDisplaySize = new Dimension(PAGE_SIZE.width - 35, PAGE_SIZE.height - (110 + actionHeight + returnButtonSize.height));
+
 		JPanel filterPanel = new JPanel();
 		filterPanel.setLayout(new BoxLayout(filterPanel, BoxLayout.LINE_AXIS));
 		filterPanel.setBackground(Color.WHITE);
 
-		Font filterFont = Fonts.getSizedFont(Fonts.OPENSANS_MEDIUM, 16);
-		
-		JLabel label1 = new JLabel("Filter by status: ");
+		JLabel label1 = new JLabel("Status: ");
 		JComboBox<String> statusFilter = new JComboBox<>(new String[]{"Show all orders", "Pending", "Confirmed", "Fulfilled"});
 		label1.setFont(filterFont);
 		statusFilter.setFont(filterFont);
 
-		JLabel label2 = new JLabel("Filter by order number: ");
-		JTextField orderNumFilter = new JTextField(32);
+		JLabel label2 = new JLabel("Order number: ");
+		JTextField orderNumFilter = new JTextField(9);
 		label2.setFont(filterFont);
 		orderNumFilter.setFont(filterFont);
 
-		JButton search = new JButton("Search order");
+		JLabel label3 = new JLabel("Placed from: ");
+		JTextField fromFilter = new JTextField(8);
+		fromFilter.setToolTipText("yyyy-mm-dd");
+		label3.setFont(filterFont);
+		fromFilter.setFont(filterFont);
+
+		JLabel label4 = new JLabel(" to: ");
+		JTextField toFilter = new JTextField(8);
+		toFilter.setToolTipText("yyyy-mm-dd");
+		label4.setFont(filterFont);
+		toFilter.setFont(filterFont);
+
+		JLabel label5 = new JLabel("Staff: ");
+		JTextField staffFilter = new JTextField(8);
+		label5.setFont(filterFont);
+		staffFilter.setFont(filterFont);
+
+		JButton search = new JButton("Search orders");
 		search.setFont(filterFont);
 		
 		JButton clear = new JButton("Clear filter");
@@ -328,14 +351,47 @@ public class StaffAccess extends JPanel {
 		filterPanel.add(Box.createHorizontalStrut(10));
 		filterPanel.add(label2);
 		filterPanel.add(orderNumFilter);
+		filterPanel.add(Box.createHorizontalStrut(10));
+		filterPanel.add(label3);
+		filterPanel.add(fromFilter);
+		filterPanel.add(label4);
+		filterPanel.add(toFilter);
+		filterPanel.add(Box.createHorizontalStrut(10));
+		filterPanel.add(label5);
+		filterPanel.add(staffFilter);
 		filterPanel.add(Box.createHorizontalStrut(5));
 		filterPanel.add(search);
 		filterPanel.add(Box.createHorizontalStrut(10));
 		filterPanel.add(clear);
 
+		// Ticked orders can be progressed together, rather than one at a time
+		JPanel actionPanel = new JPanel();
+		actionPanel.setLayout(new BoxLayout(actionPanel, BoxLayout.LINE_AXIS));
+		actionPanel.setBackground(Color.WHITE);
+		actionPanel.setPreferredSize(new Dimension(PAGE_SIZE.width - 35, actionHeight));
+		actionPanel.setMaximumSize(new Dimension(PAGE_SIZE.width - 35, actionHeight));
+
+		JButton selectAll = new JButton("Select all shown");
+		selectAll.setFont(filterFont);
+		selectAll.setToolTipText("Selects the orders loaded so far - scroll down to load more");
+		JButton progressSelected = new JButton("Progress selected orders");
+		progressSelected.setFont(filterFont);
+
+		selectAll.addActionListener(e -> {
+			if (shownOrders != null) {
+				shownOrders.selectAll(true);
+			}
+		});
+		progressSelected.addActionListener(e -> progressSelectedOrders(progressSelected));
+
+		actionPanel.add(Box.createHorizontalGlue());
+		actionPanel.add(selectAll);
+		actionPanel.add(Box.createHorizontalStrut(10));
+		actionPanel.add(progressSelected);
+
 		JPanel noneFoundPanel = new JPanel(new GridBagLayout());
-		noneFoundPanel.setPreferredSize(new Dimension(PAGE_SIZE.width - 35, PAGE_SIZE.height - (100 + returnButtonSize.height)));
-		noneFoundPanel.setMaximumSize(new Dimension(PAGE_SIZE.width - 35, PAGE_SIZE.height - (100 + returnButtonSize.height)));
+		noneFoundPanel.setPreferredSize(orderDisplaySize);
+		noneFoundPanel.setMaximumSize(orderDisplaySize);
 
 		JLabel noneFoundLabel = new JLabel("No orders found!");
 		noneFoundLabel.setFont(Fonts.getSizedFont(Fonts.OPENSANS_SEMIBOLD, 32));
@@ -344,63 +400,194 @@ public class StaffAccess extends JPanel {
 
 		JPanel orderDisplayPane = new JPanel();
 		orderDisplayPane.setBackground(Color.WHITE);
-		orderDisplayPane.add((new OrderDisplay(allOrders, this, new Dimension(PAGE_SIZE.width - 35, PAGE_SIZE.height - (100 + returnButtonSize.height))).getScroller()));
 
 		CONTENT_PANE.add(filterPanel);
 		CONTENT_PANE.add(Box.createVerticalStrut(10));
+		CONTENT_PANE.add(actionPanel);
+		CONTENT_PANE.add(Box.createVerticalStrut(10));
 		CONTENT_PANE.add(orderDisplayPane);
 
-		statusFilter.addActionListener(e -> {
-			orderDisplayPane.removeAll();
-			String selected = (String)statusFilter.getSelectedItem();
+		showOrders(orderDisplayPane, new OrderFilter(), orderDisplaySize, noneFoundPanel);
 
-			if ("Show all orders".equals(selected)) {
-				orderDisplayPane.add((new OrderDisplay(allOrders, this, new Dimension(PAGE_SIZE.width - 35, PAGE_SIZE.height - (100 + returnButtonSize.height))).getScroller()));
-			} else {
-				String status = selected.toUpperCase();
-				OrderInfo[] ordersWithStatus = Arrays.stream(allOrders).filter(oi -> oi.getOrder().getStatus().equals(status)).toArray(OrderInfo[]::new);
-				if (ordersWithStatus.length > 0) {
-					orderDisplayPane.add((new OrderDisplay(ordersWithStatus, this, new Dimension(PAGE_SIZE.width - 35, PAGE_SIZE.height - (100 + returnButtonSize.height))).getScroller()));
-				} else {
-					orderDisplayPane.add(noneFoundPanel);
+		// Every filter is applied by the database, so only matching orders ever get loaded
+		Runnable applyFilters = () -> {
+			OrderFilter filter = new OrderFilter();
+
+			String selected = (String) statusFilter.getSelectedItem();
+			if (!"Show all orders".equals(selected)) {
+				filter.setStatus(selected.toUpperCase());
+			}
+
+			if (!orderNumFilter.getText().trim().isEmpty()) {
+				if (!Validation.isValidNumber(orderNumFilter.getText())) {
+					OptionPanes.showErrorPane("Please enter a valid order number.", OptionPanes.WARNING);
+					return;
 				}
+				filter.setOrderNumber(Integer.parseInt(orderNumFilter.getText().trim()));
 			}
 
-			orderDisplayPane.revalidate();
-			orderDisplayPane.repaint();
-		});
+			if (!fromFilter.getText().trim().isEmpty()) {
+				if (!Validation.isValidDate(fromFilter.getText())) {
+					OptionPanes.showErrorPane("Please enter the start date as yyyy-mm-dd.", OptionPanes.WARNING);
+					return;
+				}
+				filter.setPlacedFrom(LocalDate.parse(fromFilter.getText().trim()));
+			}
 
-		search.addActionListener(e -> {
-			if (orderNumFilter.getText().isEmpty()) {
-				return;
+			if (!toFilter.getText().trim().isEmpty()) {
+				if (!Validation.isValidDate(toFilter.getText())) {
+					OptionPanes.showErrorPane("Please enter the end date as yyyy-mm-dd.", OptionPanes.WARNING);
+					return;
+				}
+				filter.setPlacedTo(LocalDate.parse(toFilter.getText().trim()));
 			}
-			orderDisplayPane.removeAll();
 
-			int orderNum = Integer.parseInt(orderNumFilter.getText());
-			OrderInfo[] withNum = Arrays.stream(allOrders).filter(oi -> oi.getOrder().getOrderNumber() == orderNum).toArray(OrderInfo[]::new);
-			if (withNum.length > 0) {
-				orderDisplayPane.add((new OrderDisplay(withNum, this, new Dimension(PAGE_SIZE.width - 35, PAGE_SIZE.height - (100 + returnButtonSize.height)))).getScroller());
-			} else {
-				orderDisplayPane.add(noneFoundLabel);
+			if (!staffFilter.getText().trim().isEmpty()) {
+				filter.setStaff(staffFilter.getText().trim());
 			}
 
-			orderDisplayPane.revalidate();
-			orderDisplayPane.repaint();
-		});
+			showOrders(orderDisplayPane, filter, orderDisplaySize, noneFoundPanel);
+		};
+
+		statusFilter.addActionListener(e -> applyFilters.run());
+		search.addActionListener(e -> applyFilters.run());
 
 		clear.addActionListener(e -> {
-			statusFilter.setSelectedIndex(0);
 			orderNumFilter.setText("");
+			fromFilter.setText("");
+			toFilter.setText("");
+			staffFilter.setText("");
 
-			orderDisplayPane.removeAll();
+			// Changing the selected status applies the filters by itself
+			if (statusFilter.getSelectedIndex() != 0) {
+				statusFilter.setSelectedIndex(0);
+			} else {
+				applyFilters.run();
+			}
+		});
 
-			orderDisplayPane.add((new OrderDisplay(allOrders, this, new Dimension(PAGE_SIZE.width - 35, PAGE_SIZE.height - (100 + returnButtonSize.height)))).getScroller());
+		contentPaneFooter(true);
+	}
 
+	/**
+	 * Shows orders a page at a time, or a message if there are no orders to show
+	 * @param orderDisplayPane the panel to show the orders in
+	 * @param filter the conditions orders must match to be shown
+	 * @param size the size of the order display
+	 * @param noneFoundPanel the panel to show if there are no orders
+	 */
+	private void showOrders(JPanel orderDisplayPane, OrderFilter filter, Dimension size, JPanel noneFoundPanel) {
+		// Drop the results of any search that's still running, so they can't replace these ones
+		pageTasks.cancelAll();
+
+		shownOrders = null;
+		orderDisplayPane.removeAll();
+		orderDisplayPane.add(BackgroundTasks.createLoadingPanel("Loading orders...", size));
+		orderDisplayPane.revalidate();
+		orderDisplayPane.repaint();
+
+		pageTasks.run(this, () -> OrderDisplay.getFirstPage(filter), page -> {
+			orderDisplayPane.removeAll();
+			if (page.isEmpty()) {
+				orderDisplayPane.add(noneFoundPanel);
+			} else {
+				shownOrders = new OrderDisplay(filter, page, this, size);
+				orderDisplayPane.add(shownOrders.getScroller());
+			}
 			orderDisplayPane.revalidate();
 			orderDisplayPane.repaint();
 		});
+	}
 
-		contentPaneFooter(true);
+	/**
+	 * Progresses every ticked order together - pending orders are confirmed and confirmed orders are fulfilled - then
+	 * tells the staff member what happened to each of them, and shows the orders again
+	 * @param progressButton the button that was pressed, disabled while the orders are progressed
+	 */
+	private void progressSelectedOrders(JButton progressButton) {
+		ArrayList<Order> selected = shownOrders == null ? new ArrayList<>() : shownOrders.getSelectedOrders();
+		if (selected.isEmpty()) {
+			OptionPanes.showErrorPane("Please select the orders to progress.", OptionPanes.WARNING);
+			return;
+		}
+
+		if (JOptionPane.showConfirmDialog(null, "Progress " + selected.size() + " order" + (selected.size() == 1 ? "" : "s") +
+		  "?\nPending orders will be confirmed, and confirmed orders will be fulfilled.", "Progress orders?",
+		  JOptionPane.OK_CANCEL_OPTION) != JOptionPane.YES_OPTION) {
+			return;
+		}
+
+		// Not part of pageTasks - once the orders are progressed, the staff member should hear about it wherever they are
+		String staffName = getStaffName();
+		progressButton.setEnabled(false);
+		BackgroundTasks.run(this, () -> Order.progressOrders(selected, staffName), results -> {
+			progressButton.setEnabled(true);
+
+			StringBuilder summary = new StringBuilder();
+			appendProgressSummary(summary, results, ProgressResult.PROGRESSED, "progressed");
+			appendProgressSummary(summary, results, ProgressResult.INSUFFICIENT_STOCK, "not progressed, as there isn't enough stock");
+			appendProgressSummary(summary, results, ProgressResult.ALREADY_PROGRESSED, "already changed by someone else");
+			appendProgressSummary(summary, results, ProgressResult.FAILED, "not progressed, as the database couldn't be updated");
+
+			if (results.values().stream().allMatch(r -> r == ProgressResult.PROGRESSED)) {
+				OptionPanes.showSuccessPane(summary.toString());
+			} else {
+				OptionPanes.showErrorPane(summary.toString(), OptionPanes.WARNING);
+			}
+			buildOrdersPage();
+		}, () -> progressButton.setEnabled(true));
+	}
+
+	/**
+	 * Adds a line to the summary of progressing several orders, listing the orders with one outcome
+	 * @param summary the summary to add to
+	 * @param results the outcome for each order, keyed by order number
+	 * @param result the outcome to list the orders of
+	 * @param description what happened to orders with that outcome, e.g. "progressed"
+	 */
+	private static void appendProgressSummary(StringBuilder summary, Map<Integer, ProgressResult> results, ProgressResult result, String description) {
+		ArrayList<Integer> orderNumbers = new ArrayList<>();
+		results.forEach((orderNumber, r) -> {
+			if (r == result) {
+				orderNumbers.add(orderNumber);
+			}
+		});
+		if (orderNumbers.isEmpty()) {
+			return;
+		}
+
+		if (summary.length() > 0) {
+			summary.append("\n");
+		}
+		summary.append(orderNumbers.size()).append(orderNumbers.size() == 1 ? " order " : " orders ").append(description).append(": ");
+		for (int i = 0; i < Math.min(orderNumbers.size(), MAX_LISTED_ORDERS); i++) {
+			summary.append(i == 0 ? "#" : ", #").append(orderNumbers.get(i));
+		}
+		if (orderNumbers.size() > MAX_LISTED_ORDERS) {
+			summary.append(" and ").append(orderNumbers.size() - MAX_LISTED_ORDERS).append(" more");
+		}
+	}
+
+	/**
+	 * Shows a new set of products in the products table, and sizes the columns to fit them
+	 * @param table the products table
+	 * @param model the table's model
+	 * @param products the products to show
+	 */
+	private static void showProducts(JTable table, ObjectTableModel<BikeComponent> model, List<BikeComponent> products) {
+		model.setRows(products);
+		ColumnSizer.fitColumns(table);
+	}
+
+	/**
+	 * Enables or disables the buttons that change a product, while a change is being saved
+	 * @param enabled whether the buttons can be clicked
+	 * @param buttons the buttons to change
+	 */
+	private static void setProductButtonsEnabled(boolean enabled, JButton... buttons) {
+		for (JButton button : buttons) {
+			button.setEnabled(enabled);
+		}
 	}
 
 	/**
@@ -408,11 +595,10 @@ public class StaffAccess extends JPanel {
 	 * @param currentlySelected the type of product to show
 	 */
 	private void buildProductsPage(String currentlySelected) {
+		pageTasks.cancelAll();
 		removeAll();
 		CONTENT_PANE.removeAll();
 
-		((MainFrame) SwingUtilities.getWindowAncestor(this)).updateCatalogue();
-
 		JPanel topPanel = new JPanel();
 		topPanel.setLayout(new BoxLayout(topPanel, BoxLayout.LINE_AXIS));
 		topPanel.setBackground(Color.WHITE);
@@ -433,6 +619,9 @@ public class StaffAccess extends JPanel {
 		JButton delete = new JButton("Delete product");
 		delete.setFont(topFont);
 
+		JButton receive = new JButton("Receive delivery");
+		receive.setFont(topFont);
+
 		topPanel.add(label);
 		topPanel.add(typeFilter);
 		topPanel.add(Box.createHorizontalStrut(10));
@@ -441,118 +630,86 @@ public class StaffAccess extends JPanel {
 		topPanel.add(edit);
 		topPanel.add(Box.createHorizontalStrut(10));
 		topPanel.add(delete);
-
-		DefaultTableModel model = new DefaultTableModel();
+		topPanel.add(Box.createHorizontalStrut(10));
+		topPanel.add(receive);
+
+		// Cells are read straight from the components, so serial and quantity sort as numbers without being parsed
+		ObjectTableModel<BikeComponent> model = new ObjectTableModel<>(new String[]{"Brand", "Serial", "Product name", "Quantity", "Reserved"},
+			new Class<?>[]{String.class, Integer.class, String.class, Integer.class, Integer.class}, (c, col) -> {
+				switch (col) {
+					case 0: return c.getBrandName();
+					case 1: return c.getSerial();
+					case 2: return c.getName();
+					case 3: return c.getQuantity();
+					default: return c.getReserved();
+				}
+			});
 		JTable table = new JTable(model);
-		model.addColumn("Brand");
-		model.addColumn("Serial");
-		model.addColumn("Product name");
-		model.addColumn("Quantity");
-
-		// Add column to model, remove from view
-		model.addColumn("brandID");
-		table.removeColumn(table.getColumnModel().getColumn(4));
 
 		int selectIndex = currentlySelected.equals("Frame Set") ? 0 : (currentlySelected.equals("Handlebar") ? 1 : 2);
-		for (BikeComponent c : MainFrame.ALL_COMPS[selectIndex]) {
-			String[] rowData = {c.getBrandName(), String.valueOf(c.getSerial()), c.getName(), String.valueOf(c.getQuantity()), String.valueOf(c.getBrandID())};
-			model.addRow(rowData);
-		}
+		typeFilter.setSelectedIndex(selectIndex);
+
+		// Show the catalogue as it is now, then swap in the refreshed one once it has loaded
+		model.setRows(Catalogue.get().getComponents(ComponentType.values()[selectIndex]));
+		pageTasks.run(this, Catalogue::refresh,
+			snapshot -> showProducts(table, model, snapshot.getComponents(ComponentType.values()[typeFilter.getSelectedIndex()])));
 
 		table.setFont(Fonts.getSizedFont(Fonts.OPENSANS_LIGHT, 16));
-		table.setDefaultEditor(Object.class, null);
 		table.setAutoCreateRowSorter(true);
 		table.getTableHeader().setReorderingAllowed(false);
         table.getTableHeader().setResizingAllowed(false);
 		table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
 
-		TableRowSorter<TableModel> sorter = new TableRowSorter<>();
-        sorter.setModel(table.getModel());
-
-		// Custom Comparator used to sort numbers as numbers, rather than as strings
-		Comparator<String> numComparator = (o1, o2) -> {
-            int int1 = Integer.parseInt(o1);
-            int int2 = Integer.parseInt(o2);
-            return int1 - int2;
-        };
-
-        sorter.setComparator(1, numComparator);
-        sorter.setComparator(3, numComparator);
-
-		table.setRowSorter(sorter);
-
-		// Resize columns to fit data
-		for (int col=0; col<table.getColumnCount(); col++) {
-            TableColumn col1 = table.getColumnModel().getColumn(col);
+		// Resize columns to fit data - only a sample of rows is measured, so this stays quick on big tables
+		ColumnSizer.fitColumns(table);
 
-            int width = col1.getMinWidth() + 50;
-            int max = col1.getMaxWidth();
-
-            for (int row1=0; row1<table.getRowCount(); row1++) {
-                TableCellRenderer tcr = table.getCellRenderer(row1, col);
-                int newWidth = table.prepareRenderer(tcr, row1, col).getPreferredSize().width + table.getIntercellSpacing().width;
-                width = Math.max(width, newWidth);
-
-                if (width >= max) {
-                    width = max;
-                    break;
-                }
-            }
-
-            col1.setPreferredWidth(width);
-        }
-
-		typeFilter.addActionListener(e -> {
-			model.setNumRows(0);
-			
-			String selected = (String)typeFilter.getSelectedItem();
-			switch (selected) {
-				case "Frame Set":
-				    for (BikeComponent c : MainFrame.ALL_COMPS[0]) {
-						String[] rowData = {c.getBrandName(), String.valueOf(c.getSerial()), c.getName(), String.valueOf(c.getQuantity()), String.valueOf(c.getBrandID())};
-						model.addRow(rowData);
-					}
-					break;
-				case "Handlebar":
-				    for (BikeComponent c : MainFrame.ALL_COMPS[1]) {
-						String[] rowData = {c.getBrandName(), String.valueOf(c.getSerial()), c.getName(), String.valueOf(c.getQuantity()), String.valueOf(c.getBrandID())};
-						model.addRow(rowData);
-					}
-					break;
-				case "Wheel":
-				    for (BikeComponent c : MainFrame.ALL_COMPS[2]) {
-						String[] rowData = {c.getBrandName(), String.valueOf(c.getSerial()), c.getName(), String.valueOf(c.getQuantity()), String.valueOf(c.getBrandID())};
-						model.addRow(rowData);
-					}
-					break;
-			}
-		});
+		// The filter's items are in the same order as ComponentType. Always read the latest snapshot, which never
+		// changes once published, so no locking is needed
+		typeFilter.addActionListener(e -> showProducts(table, model, Catalogue.get().getComponents(ComponentType.values()[typeFilter.getSelectedIndex()])));
 
 		edit.addActionListener(e -> {
 			if (table.getSelectedRow() == -1) {
 				OptionPanes.showErrorPane("Please select a product first!", OptionPanes.WARNING);
 			} else {
-				int selectedRow = table.convertRowIndexToModel(table.getSelectedRow()); // Protect against sorting
-				// Need the model rather than the view to get hidden values
-				int brand = Integer.parseInt((String) table.getModel().getValueAt(selectedRow, 4));
-				String bName = (String) table.getModel().getValueAt(selectedRow, 0);
-			    int serial = Integer.parseInt((String) table.getModel().getValueAt(selectedRow, 1));
-				String name = (String) table.getModel().getValueAt(selectedRow, 2);
+				BikeComponent c = model.getRow(table.convertRowIndexToModel(table.getSelectedRow())); // Protect against sorting
+				int brand = c.getBrandID();
+				String bName = c.getBrandName();
+				int serial = c.getSerial();
+				String name = c.getName();
 				String input = JOptionPane.showInputDialog("Enter new quantity for " + bName + " " + name + ": ");
+				table.clearSelection();
+
+				final int qty;
 				try {
-					int qty = Integer.parseInt(input);
-					if (qty >= 0 && BikeComponent.updateQuantity(brand, serial, qty)) {
-						OptionPanes.showSuccessPane("Quantity update successful!");
-						buildProductsPage((String) typeFilter.getSelectedItem());
-					} else {
-						OptionPanes.showErrorPane("Failed to update quantity, please double-check the entered value", OptionPanes.RECOVERABLE);
-					}
-				} catch (Exception ex) {
+					qty = Integer.parseInt(input);
+				} catch (NumberFormatException ex) {
 					if (input != null) {
 						OptionPanes.showErrorPane("Please enter a valid number!", OptionPanes.WARNING);
 					}
+					return;
 				}
-				table.clearSelection();
+
+				if (qty < 0) {
+					OptionPanes.showErrorPane("The quantity can't be negative!", OptionPanes.WARNING);
+					return;
+				}
+
+				// Apply the difference from the quantity shown rather than overwriting it, so stock received or used
+				// by another terminal since the page was loaded isn't lost
+				StockAdjustment adjustment = new StockAdjustment(brand, serial, qty - c.getQuantity());
+
+				// Only one change to the products at a time, until the page is rebuilt with the result
+				setProductButtonsEnabled(false, edit, delete);
+				pageTasks.run(this, () -> BikeComponent.adjustQuantities(Collections.singletonList(adjustment)), success -> {
+					if (success) {
+						OptionPanes.showSuccessPane("Quantity update successful!");
+						buildProductsPage((String) typeFilter.getSelectedItem());
+					} else {
+						OptionPanes.showErrorPane("Failed to update quantity, please double-check the entered value." +
+							"\nThe quantity can't be less than the amount reserved by confirmed orders (" + c.getReserved() + ").", OptionPanes.RECOVERABLE);
+						setProductButtonsEnabled(true, edit, delete);
+					}
+				}, () -> setProductButtonsEnabled(true, edit, delete));
 			}
 		});
 
@@ -560,25 +717,30 @@ public class StaffAccess extends JPanel {
 			if (table.getSelectedRow() == -1) {
 				OptionPanes.showErrorPane("Please select a product first.", OptionPanes.WARNING);
 			} else {
-				int selectedRow = table.convertRowIndexToModel(table.getSelectedRow()); // Protect against sorting
-				int brand = Integer.parseInt((String) table.getModel().getValueAt(selectedRow, 4));
-				String bName = (String) table.getModel().getValueAt(selectedRow, 0);
-			    int serial = Integer.parseInt((String) table.getModel().getValueAt(selectedRow, 1));
-				String name = (String) table.getModel().getValueAt(selectedRow, 2);
+				BikeComponent c = model.getRow(table.convertRowIndexToModel(table.getSelectedRow())); // Protect against sorting
+				int brand = c.getBrandID();
+				String bName = c.getBrandName();
+				int serial = c.getSerial();
+				String name = c.getName();
 				if (JOptionPane.showConfirmDialog(null, "Are you sure you want to delete " + bName + " " + name + "?",
                     "Delete product?", JOptionPane.OK_CANCEL_OPTION) == JOptionPane.YES_OPTION) {
-					if (BikeComponent.deleteBikeComponent(brand, serial)) {
-						OptionPanes.showSuccessPane("Successfully deleted product!");
-						buildProductsPage((String) typeFilter.getSelectedItem());
-					} else {
-						OptionPanes.showErrorPane("Failed to delete product!", OptionPanes.RECOVERABLE);
-					}
+					setProductButtonsEnabled(false, edit, delete);
+					pageTasks.run(this, () -> BikeComponent.deleteBikeComponent(brand, serial), success -> {
+						if (success) {
+							OptionPanes.showSuccessPane("Successfully deleted product!");
+							buildProductsPage((String) typeFilter.getSelectedItem());
+						} else {
+							OptionPanes.showErrorPane("Failed to delete product!", OptionPanes.RECOVERABLE);
+							setProductButtonsEnabled(true, edit, delete);
+						}
+					}, () -> setProductButtonsEnabled(true, edit, delete));
                 }
 				table.clearSelection();
 			}
 		});
 
 		add.addActionListener(e -> buildAddProductPage((String) typeFilter.getSelectedItem()));
+		receive.addActionListener(e -> buildReceiveStockPage((String) typeFilter.getSelectedItem()));
 
 		JScrollPane scroller = new JScrollPane(table);
         scroller.setViewportBorder(null);
@@ -595,11 +757,120 @@ public class StaffAccess extends JPanel {
 		contentPaneFooter(true);
 	}
 
+	/**
+	 * Builds the page used to book in a delivery from a supplier - the quantity received of each product is entered in
+	 * the table, and then all of it is added to the stock at once, in a single transaction
+	 * @param returnType the type of product to show when going back to the products page
+	 */
+	private void buildReceiveStockPage(String returnType) {
+		pageTasks.cancelAll();
+		removeAll();
+		CONTENT_PANE.removeAll();
+
+		Font topFont = Fonts.getSizedFont(Fonts.OPENSANS_MEDIUM, 16);
+		String[] typeNames = new String[]{"Frame Set", "Handlebar", "Wheel"};  // In the same order as ComponentType
+
+		JPanel topPanel = new JPanel();
+		topPanel.setLayout(new BoxLayout(topPanel, BoxLayout.LINE_AXIS));
+		topPanel.setBackground(Color.WHITE);
+
+		JLabel label = new JLabel("Enter the quantity received of each product: ");
+		label.setFont(topFont);
+
+		JButton submit = new JButton("Receive stock");
+		submit.setFont(topFont);
+
+		JButton returnButton = new JButton("Return to component view");
+		returnButton.setFont(topFont);
+
+		topPanel.add(label);
+		topPanel.add(Box.createHorizontalStrut(10));
+		topPanel.add(submit);
+		topPanel.add(Box.createHorizontalStrut(10));
+		topPanel.add(returnButton);
+
+		ArrayList<ReceivedStock> lines = new ArrayList<>();
+		for (BikeComponent c : Catalogue.get().getComponents()) {
+			lines.add(new ReceivedStock(c));
+		}
+
+		ObjectTableModel<ReceivedStock> model = new ObjectTableModel<>(new String[]{"Type", "Brand", "Serial", "Product name", "In stock", "Received"},
+			new Class<?>[]{String.class, String.class, Integer.class, String.class, Integer.class, Integer.class}, (line, col) -> {
+				switch (col) {
+					case 0: return typeNames[line.component.getType().ordinal()];
+					case 1: return line.component.getBrandName();
+					case 2: return line.component.getSerial();
+					case 3: return line.component.getName();
+					case 4: return line.component.getQuantity();
+					default: return line.received;
+				}
+			});
+		model.setEditableColumn(5, (line, col, value) -> line.received = value == null ? 0 : Math.max(0, (Integer) value));
+		model.setRows(lines);
+
+		JTable table = new JTable(model);
+		table.setFont(Fonts.getSizedFont(Fonts.OPENSANS_LIGHT, 16));
+		table.setAutoCreateRowSorter(true);
+		table.getTableHeader().setReorderingAllowed(false);
+		table.getTableHeader().setResizingAllowed(false);
+		table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+		table.putClientProperty("terminateEditOnFocusLost", Boolean.TRUE);
+
+		// Resize columns to fit data - only a sample of rows is measured, so this stays quick on big tables
+		ColumnSizer.fitColumns(table);
+
+		returnButton.addActionListener(e -> buildProductsPage(returnType));
+		submit.addActionListener(e -> {
+			// Keep whatever is still being typed into a cell
+			if (table.isEditing()) {
+				table.getCellEditor().stopCellEditing();
+			}
+
+			ArrayList<StockAdjustment> adjustments = new ArrayList<>();
+			for (ReceivedStock line : lines) {
+				if (line.received > 0) {
+					adjustments.add(new StockAdjustment(line.component.getBrandID(), line.component.getSerial(), line.received));
+				}
+			}
+
+			if (adjustments.isEmpty()) {
+				OptionPanes.showErrorPane("Please enter the quantity received of at least one product.", OptionPanes.WARNING);
+				return;
+			}
+
+			submit.setEnabled(false);
+			pageTasks.run(this, () -> BikeComponent.adjustQuantities(adjustments), success -> {
+				if (success) {
+					OptionPanes.showSuccessPane("Received stock of " + adjustments.size() + " product" + (adjustments.size() == 1 ? "" : "s") + "!");
+					buildProductsPage(returnType);
+				} else {
+					OptionPanes.showErrorPane("Failed to receive stock - no quantities have been changed.\nPlease try again.", OptionPanes.RECOVERABLE);
+					submit.setEnabled(true);
+				}
+			}, () -> submit.setEnabled(true));
+		});
+
+		JScrollPane scroller = new JScrollPane(table);
+		scroller.setViewportBorder(null);
+		scroller.getVerticalScrollBar().setUnitIncrement(16); // Make scroll speed normal
+		scroller.setHorizontalScrollBarPolicy(JScrollPane.HORIZONTAL_SCROLLBAR_NEVER);
+		scroller.setMinimumSize(new Dimension(PAGE_SIZE.width - 30, PAGE_SIZE.height - (85 + returnButtonSize.height)));
+		scroller.setPreferredSize(new Dimension(PAGE_SIZE.width - 30, PAGE_SIZE.height - (85 + returnButtonSize.height)));
+		scroller.setMaximumSize(new Dimension(PAGE_SIZE.width - 30, PAGE_SIZE.height - (85 + returnButtonSize.height)));
+
+		CONTENT_PANE.add(topPanel);
+		CONTENT_PANE.add(Box.createVerticalStrut(10));
+		CONTENT_PANE.add(scroller);
+
+		contentPaneFooter(true);
+	}
+
 	/**
 	 * Builds the page that a staff member will use to add products to the database
 	 * @param type the type of product to add
 	 */
 	private void buildAddProductPage(String type) {
+		pageTasks.cancelAll();
 		removeAll();
 		CONTENT_PANE.removeAll();
 
@@ -624,7 +895,8 @@ public class StaffAccess extends JPanel {
 		formHolder.add(detailsTitle);
 		formHolder.add(Box.createVerticalStrut(10));
 
-		JComboBox<Brand> brandBox = new JComboBox<>(Brand.getAll().toArray(new Brand[0]));
+		// Filled in once the brands have loaded
+		JComboBox<Brand> brandBox = new JComboBox<>();
 
 		String[] fields;
 		int[] validation;
@@ -664,7 +936,10 @@ public class StaffAccess extends JPanel {
 		scroller.setPreferredSize(new Dimension(PAGE_SIZE.width - 30, PAGE_SIZE.height - (100 + returnButtonSize.height)));
 		scroller.setMaximumSize(new Dimension(PAGE_SIZE.width - 30, PAGE_SIZE.height - (100 + returnButtonSize.height)));
 
-        CONTENT_PANE.add(scroller);
+		// Show a placeholder until the brands have loaded
+		JPanel loadingPanel = BackgroundTasks.createLoadingPanel("Loading brands...", scroller.getPreferredSize());
+
+        CONTENT_PANE.add(loadingPanel);
 
 		CONTENT_PANE.add(Box.createVerticalStrut(10));
 
@@ -676,27 +951,44 @@ public class StaffAccess extends JPanel {
 		returnButton.addActionListener(e -> buildProductsPage(type));
 		detailsSubmit.addActionListener(e -> {
 			if (df.validInputs()) {
-				boolean success = addProduct(type, df);
-				if (success) {
-					OptionPanes.showSuccessPane("Successfully added " + type + " to database!");
-					buildProductsPage(type);
-				} else {
-					OptionPanes.showErrorPane("Failed to add " + type + ".\nPlease try again.\nMake sure you have entered brand/serial correctly, and that they are a unique combination.", OptionPanes.RECOVERABLE);
-				}
+				Supplier<Boolean> adder = addProduct(type, df);
+				detailsSubmit.setEnabled(false);
+				pageTasks.run(this, adder, success -> {
+					if (success) {
+						OptionPanes.showSuccessPane("Successfully added " + type + " to database!");
+						buildProductsPage(type);
+					} else {
+						OptionPanes.showErrorPane("Failed to add " + type + ".\nPlease try again.\nMake sure you have entered brand/serial correctly, and that they are a unique combination.", OptionPanes.RECOVERABLE);
+						detailsSubmit.setEnabled(true);
+					}
+				}, () -> detailsSubmit.setEnabled(true));
 			}
 		});
 
 		contentPaneFooter(true);
+
+		pageTasks.run(this, Brand::getAll, brands -> {
+			for (Brand b : brands) {
+				brandBox.addItem(b);
+			}
+
+			int index = CONTENT_PANE.getComponentZOrder(loadingPanel);
+			CONTENT_PANE.remove(loadingPanel);
+			CONTENT_PANE.add(scroller, index);
+			CONTENT_PANE.revalidate();
+			CONTENT_PANE.repaint();
+		});
 	}
 
 	/**
-	 * Gets component data from the DetailsForm, and attempts to add to database
+	 * Gets component data from the DetailsForm, ready to add to the database. The form is read straight away, on the
+	 * event dispatch thread, and the database is only used by the work that's returned
 	 * @param type the type of component to add
 	 * @param df the DetailsForm storing all of the data
-	 * @return
+	 * @return work that adds the component (and its new brand, if one was entered), returning whether it succeeded
 	 */
-	private boolean addProduct(String type, DetailsForm df) {
-		Brand bInput = ((Brand) ((JComboBox)df.getOverridenComp("Brand")).getSelectedItem());
+	private Supplier<Boolean> addProduct(String type, DetailsForm df) {
+		Brand selectedBrand = (Brand) ((JComboBox) df.getOverridenComp("Brand")).getSelectedItem();
 		String newBrand = df.getInput("New Brand (if not in list)");
 		int serial = Integer.parseInt(df.getInput("Serial #"));
 		String name = df.getInput("Product Name");
@@ -708,36 +1000,35 @@ public class StaffAccess extends JPanel {
 		if (type.equals("Wheel") || type.equals("Handlebar")) {
 			style = ((String) ((JComboBox) df.getOverridenComp("Style")).getSelectedItem()).toUpperCase();
 		}
-
-		if (!newBrand.isEmpty()) {
-			bInput = Brand.addBrand(newBrand);
+		String chosenStyle = style;
+
+		// Only the fields of the type being added exist on the form
+		int shocks = type.equals("Frame Set") && ((JCheckBox) df.getOverridenComp("Shocks")).isSelected() ? 1 : 0;
+		int size = type.equals("Frame Set") ? Integer.parseInt(df.getInput("Size (cm)")) : 0;
+		int gears = type.equals("Frame Set") ? Integer.parseInt(df.getInput("Gears")) : 0;
+		int diameter = type.equals("Wheel") ? Integer.parseInt(df.getInput("Diameter (cm)")) : 0;
+		String brakes = type.equals("Wheel") ? ((String) ((JComboBox) df.getOverridenComp("Brakes")).getSelectedItem()).toUpperCase() : null;
+
+		return () -> {
+			Brand bInput = selectedBrand;
+			if (!newBrand.isEmpty()) {
+				bInput = Brand.addBrand(newBrand);
+			}
 			if (bInput == null) {
 				return false;
 			}
-		}
-
-		int brandID = bInput.getID();
 
-		boolean success;
+			int brandID = bInput.getID();
 
-		switch (type) {
-			case "Frame Set":
-				int shocks = ((JCheckBox)df.getOverridenComp("Shocks")).isSelected() ? 1 : 0;
-				int size = Integer.parseInt(df.getInput("Size (cm)"));
-				int gears = Integer.parseInt(df.getInput("Gears"));
-				success = FrameSet.addFrameSet(brandID, serial, price, name, qty, shocks, size, gears);
-				break;
-			case "Handlebar":
-				success = Handlebar.addHandlebar(brandID, serial, price, name, qty, style);
-				break;
-			default:
-				int diameter = Integer.parseInt(df.getInput("Diameter (cm)"));
-				String brakes = ((String) ((JComboBox)df.getOverridenComp("Brakes")).getSelectedItem()).toUpperCase();
-				success = Wheel.addWheel(brandID, serial, price, name, qty, diameter, style, brakes);
-				break;
-		}
-
-		return success;
+			switch (type) {
+				case "Frame Set":
+					return FrameSet.addFrameSet(brandID, serial, price, name, qty, shocks, size, gears);
+				case "Handlebar":
+					return Handlebar.addHandlebar(brandID, serial, price, name, qty, chosenStyle);
+				default:
+					return Wheel.addWheel(brandID, serial, price, name, qty, diameter, chosenStyle, brakes);
+			}
+		};
 	}
 
 	/**
@@ -746,4 +1037,19 @@ public class StaffAccess extends JPanel {
 	protected String getStaffName() {
 		return loggedInStaff.getUsername();
 	}
+
+	/**
+	 * One row of the receive delivery page - a product, and how much of it has been received
+	 */
+	private static class ReceivedStock {
+		private final BikeComponent component;
+		private int received = 0;
+
+		/**
+		 * @param component the product that may have been received
+		 */
+		private ReceivedStock(BikeComponent component) {
+			this.component = component;
+		}
+	}
 }
@@ -16,6 +16,9 @@ public class TrackOrder extends JPanel {
 
     private OrderInfo[] displayed;
 
+    /** Lookups that are still running - cancelled if the customer leaves the page before they finish */
+    private final BackgroundTasks.Group lookups = new BackgroundTasks.Group();
+
     /**
      * The page that will allow a customer to track their orders
      * @param width the width of the page
@@ -57,6 +60,7 @@ public class TrackOrder extends JPanel {
      * Initialises the page
      */
     private void initPage() {
+        lookups.cancelAll();
         removeAll();
         setBackground(UIManager.getColor("Panel.background"));
         setLayout(new BoxLayout(this, BoxLayout.LINE_AXIS));
@@ -141,17 +145,24 @@ public class TrackOrder extends JPanel {
             if (!orderNumberForm.validInputs()) {
                 return;
             }
+            int orderNumber;
             try {
-                OrderInfo[] order = OrderInfo.get(Integer.parseInt(orderNumberForm.getInput("Order Number")));
+                orderNumber = Integer.parseInt(orderNumberForm.getInput("Order Number"));
+            } catch (NumberFormatException ex) {
+                incorrectOrderNum.setText("Invalid order number!");
+                return;
+            }
+
+            setSearching(orderSubmit, incorrectOrderNum, true);
+            lookups.run(this, () -> OrderInfo.get(orderNumber), order -> {
+                setSearching(orderSubmit, incorrectOrderNum, false);
                 displayed = order;
                 if (order[0] == null) {
                     incorrectOrderNum.setText("No orders found!");
                 } else {
                     buildOrderDisplay(order);
                 }
-            } catch (Exception ex) {
-                incorrectOrderNum.setText("Invalid order number!");
-            }
+            }, () -> setSearching(orderSubmit, incorrectOrderNum, false));
         });
 
         detailsSubmit.addActionListener(e -> {
@@ -159,32 +170,53 @@ public class TrackOrder extends JPanel {
             if (!customerDetailsForm.validInputs()) {
                 return;
             }
+            String forename = customerDetailsForm.getInput("Forename");
+            String surname = customerDetailsForm.getInput("Surname");
+            String postcode = customerDetailsForm.getInput("Postcode");
+            int houseNum;
             try {
-                String forename = customerDetailsForm.getInput("Forename");
-                String surname = customerDetailsForm.getInput("Surname");
-                String houseNum = customerDetailsForm.getInput("House Number");
-                String postcode = customerDetailsForm.getInput("Postcode");
-                OrderInfo[] orders = OrderInfo.get(forename, surname, Integer.parseInt(houseNum), postcode).toArray(new OrderInfo[0]);
+                houseNum = Integer.parseInt(customerDetailsForm.getInput("House Number"));
+            } catch (NumberFormatException ex) {
+                incorrectDetails.setText("Invalid details!");
+                return;
+            }
+
+            setSearching(detailsSubmit, incorrectDetails, true);
+            lookups.run(this, () -> OrderInfo.get(forename, surname, houseNum, postcode).toArray(new OrderInfo[0]), orders -> {
+                setSearching(detailsSubmit, incorrectDetails, false);
                 if (orders.length == 0) {
                     incorrectDetails.setText("No orders found!");
                 } else {
                     displayed = orders;
                     buildOrderDisplay(orders);
                 }
-            } catch (Exception ex) {
-                incorrectDetails.setText("Invalid details!");
-            }
+            }, () -> setSearching(detailsSubmit, incorrectDetails, false));
         });
 
         revalidate();
         repaint();
     }
 
+    /**
+     * Shows that a lookup is running, and stops it being submitted again until it's finished
+     * @param submit the button that submits the lookup
+     * @param hint the label used to tell the customer if the lookup didn't find anything
+     * @param searching true when the lookup starts, false when it finishes
+     */
+    private void setSearching(JButton submit, JLabel hint, boolean searching) {
+        submit.setEnabled(!searching);
+        submit.setText(searching ? "Searching..." : "Track order");
+        if (searching) {
+            hint.setText("");
+        }
+    }
+
     /**
      * Builds an OrderDisplay for a set of orders
      * @param orders the orders to build an OrderDisplay for
      */
     protected void buildOrderDisplay(OrderInfo[] orders) {
+        lookups.cancelAll();
         removeAll();
         JPanel holder = new JPanel();
         holder.setBorder(new EmptyBorder(15, 15, 15, 15));
@@ -217,6 +249,7 @@ public class TrackOrder extends JPanel {
         Order order = oi.getOrder();
         Customer customer = oi.getCustomer();
 
+        lookups.cancelAll();
         removeAll();
         JPanel panel = new JPanel();
         panel.setBackground(Color.WHITE);
@@ -256,30 +289,43 @@ public class TrackOrder extends JPanel {
                     bikeName.getText().equals("")) {
                     form.setError("Please enter you details!");;
                 } else {
+                    int houseNum;
                     try {
-                        boolean addressSuccess = ci.updateCustomerAddress(Integer.parseInt(form.getHouseNum()), form.getPostcode(), form.getRoad(), form.getCity());
-
-                        if (addressSuccess) {
-                            customer.setForename(form.getForename());
-                            customer.setSurname(form.getSurname());
-
-                            boolean updateSuccess = Customer.updateCustomer(customer);
-
-                            if (updateSuccess) {
-                                order.updateBikeName(bikeName.getText());
-
-                                for(OrderInfo info : orders) {
-                                    info.setAddress(ci.getAddress());
-                                    info.setCustomer(customer);
-                                }
-                                OptionPanes.showSuccessPane("Successfully edited details!");
+                        houseNum = Integer.parseInt(form.getHouseNum());
+                    } catch (NumberFormatException ex) {
+                        form.setError("Error! Please make sure you are entering your details correctly!");
+                        return;
+                    }
+                    String forename = form.getForename();
+                    String surname = form.getSurname();
+                    String postcode = form.getPostcode();
+                    String road = form.getRoad();
+                    String city = form.getCity();
+                    String newBikeName = bikeName.getText();
+
+                    // Not part of the page's lookups - once a save has started it should be allowed to finish
+                    save.setEnabled(false);
+                    BackgroundTasks.run(this, () -> {
+                        if (!ci.updateCustomerAddress(houseNum, postcode, road, city)) {
+                            return false;
+                        }
+                        customer.setForename(forename);
+                        customer.setSurname(surname);
+                        if (!Customer.updateCustomer(customer)) {
+                            return false;
+                        }
+                        order.updateBikeName(newBikeName);
+                        return true;
+                    }, success -> {
+                        if (success) {
+                            for(OrderInfo info : orders) {
+                                info.setAddress(ci.getAddress());
+                                info.setCustomer(customer);
                             }
+                            OptionPanes.showSuccessPane("Successfully edited details!");
                         }
-
                         buildOrderDisplay(orders);
-                    } catch (Exception ex) {
-                        form.setError("Error! Please make sure you are entering your details correctly!");
-                    } 
+                    }, () -> save.setEnabled(true));
                 }
             }
         });
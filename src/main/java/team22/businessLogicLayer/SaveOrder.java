@@ -50,26 +50,9 @@ public class SaveOrder {
                                            String roadName, String cityName, String bikeName, FrameSet frameSet,
                                            Handlebar handlebar, Wheel wheel) {
 
-        int existingOrder = saveOrderExistingCustomer(forename, surname, postcode, houseNum, bikeName, frameSet, handlebar, wheel);
-
-        // Try and login as an existing customer in case wrong button is selected
-        if (existingOrder == -1) {
-
-            // Check if address already exists
-            Address address = Address.getAddress(postcode, houseNum);
-            // If address does not exist add the address to the database
-            if (address.getAddressID() == 0) {
-                Address.addAddress(postcode, houseNum, roadName, cityName);
-                address = Address.getAddress(postcode, houseNum);
-            }
-
-            // Add the customer to the database
-            Customer.addCustomer(address.getAddressID(), forename, surname);
-
-            // SaveOrder
-            return saveOrderExistingCustomer(forename, surname, postcode, houseNum, bikeName, frameSet, handlebar, wheel);
-        } else {
-            return existingOrder;
-        }
+        // Looks up/adds the address and customer and places the order in a single transaction - if the customer
+        // already exists (i.e. wrong button selected), the order is placed for them instead
+        return Order.addOrderNewCustomer(forename, surname, postcode, houseNum, roadName, cityName, bikeName,
+                                         frameSet, handlebar, wheel);
     }
 }
@@ -1,5 +1,7 @@
 package team22.businessLogicLayer;
 
+import java.time.LocalDate;
+
 /**
  * A helper class for validation
  */
@@ -37,4 +39,18 @@ public class Validation {
     public static boolean isValidMoney(String money) {
         return money.matches("£?(\\d{1,3}(,\\d{3})*|(\\d+))(\\.\\d{2})?$");
     }
+
+    /**
+     * Checks if a string is a date in the format yyyy-mm-dd
+     * @param date the string to check
+     * @return true if a valid date, false otherwise
+     */
+    public static boolean isValidDate(String date) {
+        try {
+            LocalDate.parse(date.trim());
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
 }
@@ -8,6 +8,7 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 
 public class Address {
     private int addressID;
@@ -81,7 +82,7 @@ public class Address {
     }
 
     /**
-     * Adds an address to the database
+     * Adds an address to the database (if there isn't already one with the same postcode and house number)
      * @param postcode the postcode of the address
      * @param houseNum the house number of the address
      * @param roadName the road name of the address
@@ -93,31 +94,63 @@ public class Address {
         cityName = Sanitisation.sanitiseName(cityName);
 
         Connection conn = null;
-        PreparedStatement ps = null;
-        ResultSet rs = null;
 
         try {
             conn = DBDriver.getConnection();
 
-            String query = "INSERT INTO Addresses (addressID, postcode, houseNum, roadName, cityName)" +
-                           "SELECT COALESCE(MAX(Addresses.addressID) + 1, 1), ?, ?, ?, ? FROM Addresses";
+            upsertAddress(conn, postcode, houseNum, roadName, cityName);
 
-            ps = conn.prepareStatement(query);
+            conn.commit();
+        } catch (SQLException e) {
+            OptionPanes.showErrorPane("Failed to create address '"+  houseNum + " " + StringUtils.titleCase(roadName)+
+                    ", " + StringUtils.titleCase(cityName) + ", " + StringUtils.formatPostcode(postcode) +
+                    "'", OptionPanes.RECOVERABLE);
+        } finally {
+            DBDriver.silentClose(conn);
+        }
+    }
+
+    /**
+     * Adds an address using an existing connection, or finds it if there is already an address with the same
+     * postcode/house number - doesn't commit, so that it can be part of a larger transaction. The postcode and names
+     * are sanitised here.
+     * Uses a single statement, with the ID coming from the auto increment column (or the existing row, via
+     * LAST_INSERT_ID), so two terminals adding the same address at once both get the same ID rather than a clash
+     * @param conn the connection to add the address with
+     * @param postcode the postcode of the address
+     * @param houseNum the house number of the address
+     * @param roadName the road name of the address (ignored if the address already exists)
+     * @param cityName the city name of the address (ignored if the address already exists)
+     * @return the ID of the new or existing address
+     * @throws SQLException if the address could not be added
+     */
+    static int upsertAddress(Connection conn, String postcode, int houseNum, String roadName, String cityName) throws SQLException {
+        postcode = Sanitisation.sanitisePostcode(postcode);
+        roadName = Sanitisation.sanitiseName(roadName);
+        cityName = Sanitisation.sanitiseName(cityName);
+
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+
+        String query = "INSERT INTO Addresses (postcode, houseNum, roadName, cityName) VALUES (?, ?, ?, ?) " +
+                       "ON DUPLICATE KEY UPDATE addressID = LAST_INSERT_ID(addressID)";
+
+        try {
+            ps = conn.prepareStatement(query, Statement.RETURN_GENERATED_KEYS);
             ps.setString(1, postcode);
             ps.setInt(2, houseNum);
             ps.setString(3, roadName);
             ps.setString(4, cityName);
             ps.executeUpdate();
 
-            conn.commit();
-        } catch (SQLException e) {
-            OptionPanes.showErrorPane("Failed to create address '"+  houseNum + " " + StringUtils.titleCase(roadName)+
-                    ", " + StringUtils.titleCase(cityName) + ", " + StringUtils.formatPostcode(postcode) +
-                    "'", OptionPanes.RECOVERABLE);
+            rs = ps.getGeneratedKeys();
+            if (!rs.next()) {
+                throw new SQLException("No ID returned for address");
+            }
+            return rs.getInt(1);
         } finally {
             DBDriver.silentClose(rs);
             DBDriver.silentClose(ps);
-            DBDriver.silentClose(conn);
         }
     }
 
@@ -7,15 +7,25 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
 
 public class BikeComponent {
 
-    
+    // Select all columns apart from brandID and serial of Wheels/FrameSets/Handlebars tables
+    static final String SELECT_COMPONENTS = "SELECT C.brandID, C.serial, price, name, quantity, reserved, C.lastUpdated, brandName, W.diameter, W.wheelStyle, W.brakes, F.shocks, F.size, F.gears, H.handlebarStyle " +
+                                              "FROM Components as C " +
+                                              "INNER JOIN Brands B on C.brandID = B.brandID " +
+                                              "LEFT JOIN Wheels W on C.brandID = W.brandID and C.serial = W.serial " +
+                                              "LEFT JOIN FrameSets F on C.brandID = F.brandID and C.serial = F.serial " +
+                                              "LEFT JOIN Handlebars H on C.brandID = H.brandID and C.serial = H.serial";
+
     private int brandID;
     private String brandName;
     private int serial;
     private String name;
     private int quantity;
+    private int reserved = 0;
     private int price;
 
     public BikeComponent() {}
@@ -47,13 +57,7 @@ public class BikeComponent {
         PreparedStatement ps = null;
         ResultSet rs = null;
 
-        // Select all columns apart from brandID and serial of Wheels/FrameSets/Handlebars tables
-        String query = "SELECT C.brandID, C.serial, price, name, quantity, brandName, W.diameter, W.wheelStyle, W.brakes, F.shocks, F.size, F.gears, H.handlebarStyle " +
-                         "FROM Components as C " +
-                         "INNER JOIN Brands B on C.brandID = B.brandID " +
-                         "LEFT JOIN Wheels W on C.brandID = W.brandID and C.serial = W.serial " +
-                         "LEFT JOIN FrameSets F on C.brandID = F.brandID and C.serial = F.serial " +
-                         "LEFT JOIN Handlebars H on C.brandID = H.brandID and C.serial = H.serial";
+        String query = SELECT_COMPONENTS;
 
         ArrayList<BikeComponent> ls = new ArrayList<BikeComponent>();
 
@@ -63,22 +67,11 @@ public class BikeComponent {
             ps = conn.prepareStatement(query);
             rs = ps.executeQuery();
 
+            RowMapper mapper = new RowMapper(rs);
             while (rs.next()) {
-                int brandID = rs.getInt("brandID");
-                int serial = rs.getInt("serial");
-                String name = rs.getString("name");
-                int qty = rs.getInt("quantity");
-                int price = rs.getInt("price");
-                String brand = rs.getString("brandName");
-
-                // Decide which type of component each row is based on columns that are unique - this is so that we can
-                // use the getDisplayName and getFieldValues methods of their respective classes.
-                if (rs.getInt("size") != 0) {
-                    ls.add(new FrameSet(brandID, serial, name, qty, price, brand, rs.getBoolean("shocks"), rs.getInt("size"), rs.getInt("gears")));
-                } else if (rs.getInt("diameter") != 0) {
-                    ls.add(new Wheel(brandID, serial, name, qty, price, brand, rs.getInt("diameter"), WheelStyle.valueOf(rs.getString("wheelStyle")), Brakes.valueOf(rs.getString("brakes"))));
-                } else if (rs.getString("handlebarStyle") != null) {
-                    ls.add(new Handlebar(brandID, serial, name, qty, price, brand, HandlebarStyle.valueOf(rs.getString("handlebarStyle"))));
+                BikeComponent bc = mapper.component(rs);
+                if (bc != null) {
+                    ls.add(bc);
                 }
             }
         } catch (SQLException e) {
@@ -92,19 +85,34 @@ public class BikeComponent {
     }
 
     /**
-     * Updates the quantity of a given component
-     * @param brandID the ID of the component to update
-     * @param serial the serial of the component to update
-     * @param qty the new quantity of the component
-     * @return true if successful, false if not
+     * Adds to (or takes from) the stock of many components at once - sent as a single batch and committed as a single
+     * transaction, so either every adjustment is applied or none of them are
+     * @param adjustments the changes to make - more than one change to the same component is allowed
+     * @return true if successful, false if a component doesn't exist, would be left with less stock than confirmed
+     *         orders have reserved, or the update failed
      */
-    public static boolean updateQuantity(int brandID, int serial, int qty) {
+    public static boolean adjustQuantities(List<StockAdjustment> adjustments) {
+        if (adjustments.isEmpty()) {
+            return true;
+        }
+
+        // Combine changes to the same component, and sort by primary key so that two terminals adjusting overlapping
+        // components always lock the rows in the same order (and so can't deadlock each other)
+        TreeMap<Long, StockAdjustment> combined = new TreeMap<>();
+        for (StockAdjustment a : adjustments) {
+            long key = key(a.getBrandID(), a.getSerial());
+            StockAdjustment existing = combined.get(key);
+            int change = a.getChange() + (existing == null ? 0 : existing.getChange());
+            combined.put(key, new StockAdjustment(a.getBrandID(), a.getSerial(), change));
+        }
+
         Connection conn = null;
         PreparedStatement ps = null;
 
+        // The stock check is part of the update, so nothing can change the stock between checking and updating it
         String query = "UPDATE Components " +
-                         "SET quantity = ? " +
-                         "WHERE Components.brandID = ? and Components.serial = ?";
+                         "SET quantity = COALESCE(quantity, 0) + ? " +
+                         "WHERE brandID = ? AND serial = ? AND COALESCE(quantity, 0) + ? >= reserved";
 
         boolean success = true;
 
@@ -112,12 +120,27 @@ public class BikeComponent {
             conn = DBDriver.getConnection();
             ps = conn.prepareStatement(query);
 
-            ps.setInt(1, qty);
-            ps.setInt(2, brandID);
-            ps.setInt(3, serial);
+            for (StockAdjustment a : combined.values()) {
+                if (a.getChange() == 0) {
+                    continue;
+                }
+                ps.setInt(1, a.getChange());
+                ps.setInt(2, a.getBrandID());
+                ps.setInt(3, a.getSerial());
+                ps.setInt(4, a.getChange());
+                ps.addBatch();
+            }
 
-            ps.executeUpdate();
-            conn.commit();
+            for (int count : ps.executeBatch()) {
+                if (count == 0) {
+                    // Missing component or not enough stock - the pool rolls back the rest when the connection closes
+                    success = false;
+                }
+            }
+
+            if (success) {
+                conn.commit();
+            }
         } catch (SQLException e) {
             success = false;
         } finally {
@@ -163,6 +186,16 @@ public class BikeComponent {
         return success;
     }
 
+    /**
+     * Packs a component's primary key into a single long, for keying maps of components
+     * @param brandID the brand ID of the component
+     * @param serial the serial of the component
+     * @return a unique key for the component, ordered the same as the Components primary key
+     */
+    static long key(int brandID, int serial) {
+        return ((long) brandID << 32) | (serial & 0xFFFFFFFFL);
+    }
+
     /**
      * @return the brand ID of the component
      */
@@ -177,6 +210,12 @@ public class BikeComponent {
         return brandName;
     }
 
+    /**
+     * Base method to be overridden in child classes
+     * @return null
+     */
+    public ComponentType getType() { return null; }
+
     /**
      * Base method to be overridden in child classes
      * @return null
@@ -187,7 +226,14 @@ public class BikeComponent {
      * Base method to be overridden in child classes
      * @return null
      */
-    public String[] getFieldValues() { return null; }
+    public Class<?>[] getFieldClasses() { return null; }
+
+    /**
+     * Base method to be overridden in child classes
+     * @param field the index of the field, matching getFieldTitles
+     * @return null
+     */
+    public Object getFieldValue(int field) { return null; }
 
     /**
      * @return the serial number of the component
@@ -221,4 +267,19 @@ public class BikeComponent {
      * @return the quantity of the component
      */
     public int getQuantity() { return quantity; }
+
+    /**
+     * @return how much of the component is reserved by orders that have been confirmed but not yet fulfilled
+     */
+    public int getReserved() { return reserved; }
+
+    /**
+     * @return how much of the component is in stock and not reserved, so can still be ordered
+     */
+    public int getAvailable() { return quantity - reserved; }
+
+    /**
+     * @param reserved how much of the component is reserved by confirmed orders
+     */
+    void setReserved(int reserved) { this.reserved = reserved; }
 }
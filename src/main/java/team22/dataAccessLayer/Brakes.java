@@ -0,0 +1,9 @@
+package team22.dataAccessLayer;
+
+/**
+ * The enum representing the brakes column in the database
+ */
+enum Brakes {
+    RIM,
+    DISK
+}
@@ -0,0 +1,274 @@
+package team22.dataAccessLayer;
+
+import team22.UI.OptionPanes;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Keeps every component in memory, so that pages showing the catalogue don't need to reload it from the database.
+ * Refreshing only fetches components whose lastUpdated column has changed since the last sync, and the result is
+ * published as a new immutable Snapshot - readers just take the current snapshot, and never see a half-applied refresh.
+ * Listeners are told whenever a new version is published, so pages can update without polling.
+ * Only Components.lastUpdated is checked, so anything that changes a row of Wheels, FrameSets, Handlebars or Brands in
+ * place must also touch the matching Components rows, or programs that have already loaded the catalogue won't see it
+ */
+public class Catalogue {
+
+    /**
+     * Told about every new version of the catalogue
+     */
+    public interface Listener {
+        /**
+         * Called on whichever thread refreshed the catalogue, so must be quick - hand any UI work to the event
+         * dispatch thread. Versions are always published in order
+         * @param snapshot the newly published snapshot
+         */
+        void catalogueChanged(Snapshot snapshot);
+    }
+
+    // Re-fetch rows updated slightly before the last sync, in case a transaction that updated them committed late
+    private static final long SYNC_OVERLAP_MILLIS = 10 * 1000;
+
+    private static final AtomicReference<Snapshot> CURRENT = new AtomicReference<>(new Snapshot(0, null, new TreeMap<>()));
+
+    private static final CopyOnWriteArrayList<Listener> LISTENERS = new CopyOnWriteArrayList<>();
+
+    /**
+     * @return the most recently published snapshot of the catalogue (empty if it has never been refreshed)
+     */
+    public static Snapshot get() {
+        return CURRENT.get();
+    }
+
+    /**
+     * @param listener told about every new version of the catalogue published from now on
+     */
+    public static void addListener(Listener listener) {
+        LISTENERS.add(listener);
+    }
+
+    /**
+     * @param listener a listener added with addListener, which will no longer be told about new versions
+     */
+    public static void removeListener(Listener listener) {
+        LISTENERS.remove(listener);
+    }
+
+    /**
+     * Brings the catalogue up to date with the database - a full load the first time, and then just the components
+     * that have changed or been deleted
+     * @return the current snapshot, which is the previous one if nothing changed (or the refresh failed)
+     */
+    public static synchronized Snapshot refresh() {
+        Snapshot old = CURRENT.get();
+        try {
+            Snapshot next = load(old);
+            publish(old, next);
+            return next;
+        } catch (SQLException e) {
+            OptionPanes.showErrorPane("Failed to refresh the product catalogue", OptionPanes.RECOVERABLE);
+            return old;
+        }
+    }
+
+    /**
+     * Makes a snapshot the current one, and tells the listeners if it's a new version. Only called while holding the
+     * class lock, so listeners see versions in order
+     * @param old the snapshot that was current
+     * @param next the snapshot to make current
+     */
+    private static void publish(Snapshot old, Snapshot next) {
+        CURRENT.set(next);
+        if (next.version != old.version) {
+            for (Listener listener : LISTENERS) {
+                listener.catalogueChanged(next);
+            }
+        }
+    }
+
+    /**
+     * Applies the changes made since a snapshot was synced - doesn't publish anything
+     * @param base the snapshot to apply changes to (loads everything if it has never been synced)
+     * @return a new snapshot if anything changed, or base if nothing did
+     * @throws SQLException if the catalogue could not be read
+     */
+    private static Snapshot load(Snapshot base) throws SQLException {
+        Connection conn = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+
+        String deltaQuery = BikeComponent.SELECT_COMPONENTS + " WHERE C.lastUpdated >= ?";
+        String keysQuery = "SELECT brandID, serial FROM Components";
+
+        try {
+            conn = DBDriver.getConnection();
+            if (conn == null) {
+                throw new SQLException("No connection to load the catalogue with");
+            }
+
+            // Keyed by brandID/serial - rows that aren't a known component type are kept with a null value, so
+            // that the keys always match the rows in the Components table
+            TreeMap<Long, BikeComponent> comps = new TreeMap<>(base.byKey);
+            Timestamp syncedTo = base.syncedTo;
+            boolean changed = base.syncedTo == null;
+
+            if (base.syncedTo == null) {
+                ps = conn.prepareStatement(BikeComponent.SELECT_COMPONENTS);
+            } else {
+                ps = conn.prepareStatement(deltaQuery);
+                ps.setTimestamp(1, new Timestamp(base.syncedTo.getTime() - SYNC_OVERLAP_MILLIS));
+            }
+            rs = ps.executeQuery();
+
+            RowMapper mapper = new RowMapper(rs);
+            while (rs.next()) {
+                BikeComponent bc = mapper.component(rs);
+                long key = BikeComponent.key(mapper.brandID(rs), mapper.serial(rs));
+
+                Timestamp updated = mapper.lastUpdated(rs);
+                if (updated != null && (syncedTo == null || updated.after(syncedTo))) {
+                    syncedTo = updated;
+                }
+
+                boolean known = comps.containsKey(key);
+                BikeComponent previous = comps.put(key, bc);
+                if (!known || !sameRow(previous, bc)) {
+                    changed = true;
+                }
+            }
+            DBDriver.silentClose(rs);
+            DBDriver.silentClose(ps);
+
+            // Deleted components don't show up in the delta, so compare the keys - a count alone would miss a
+            // component being deleted and another added in the same window. Only reads the primary key index
+            if (base.syncedTo != null) {
+                ps = conn.prepareStatement(keysQuery);
+                rs = ps.executeQuery();
+                HashSet<Long> existing = new HashSet<>(comps.size() * 2);
+                while (rs.next()) {
+                    existing.add(BikeComponent.key(rs.getInt(1), rs.getInt(2)));
+                }
+                if (comps.keySet().retainAll(existing)) {
+                    changed = true;
+                }
+            }
+
+            if (!changed) {
+                return base;
+            }
+            // Never let syncedTo be null once loaded, even if the table is empty
+            return new Snapshot(base.version + 1, syncedTo == null ? new Timestamp(0) : syncedTo, comps);
+        } finally {
+            DBDriver.silentClose(rs);
+            DBDriver.silentClose(ps);
+            DBDriver.silentClose(conn);
+        }
+    }
+
+    /**
+     * Used to tell whether a row from the delta query (which overlaps the last sync) actually changed anything
+     * @param a the previous version of the component (null if not a known component type)
+     * @param b the new version of the component (null if not a known component type)
+     * @return true if the two have the same type, stock, reserved stock and displayed fields (which include the
+     *         type-specific ones, like a wheel's brakes)
+     */
+    private static boolean sameRow(BikeComponent a, BikeComponent b) {
+        if (a == null || b == null) {
+            return a == b;
+        }
+        if (a.getClass() != b.getClass() || a.getQuantity() != b.getQuantity() || a.getReserved() != b.getReserved() ||
+            a.getPrice() != b.getPrice() || !Objects.equals(a.getName(), b.getName())) {
+            return false;
+        }
+        for (int i = 0; i < a.getFieldTitles().length; i++) {
+            if (!Objects.equals(a.getFieldValue(i), b.getFieldValue(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * An immutable copy of the catalogue at one point in time
+     */
+    public static class Snapshot {
+        private final long version;
+        private final Timestamp syncedTo;
+        private final TreeMap<Long, BikeComponent> byKey;
+        private final List<BikeComponent> components;
+        private final EnumMap<ComponentType, List<BikeComponent>> byType;
+
+        /**
+         * @param version increases by one every time a changed catalogue is published
+         * @param syncedTo the latest lastUpdated value included in this snapshot (null if never loaded)
+         * @param byKey the components, keyed by brandID/serial (null for unknown types) - must not be modified after this
+         */
+        private Snapshot(long version, Timestamp syncedTo, TreeMap<Long, BikeComponent> byKey) {
+            this.version = version;
+            this.syncedTo = syncedTo;
+            this.byKey = byKey;
+
+            EnumMap<ComponentType, ArrayList<BikeComponent>> typeLists = new EnumMap<>(ComponentType.class);
+            for (ComponentType type : ComponentType.values()) {
+                typeLists.put(type, new ArrayList<>());
+            }
+
+            ArrayList<BikeComponent> ls = new ArrayList<>(byKey.size());
+            for (BikeComponent bc : byKey.values()) {
+                if (bc != null) {
+                    ls.add(bc);
+                    typeLists.get(bc.getType()).add(bc);
+                }
+            }
+            this.components = Collections.unmodifiableList(ls);
+
+            this.byType = new EnumMap<>(ComponentType.class);
+            for (ComponentType type : ComponentType.values()) {
+                byType.put(type, Collections.unmodifiableList(typeLists.get(type)));
+            }
+        }
+
+        /**
+         * @return true if this snapshot has been loaded from the database, false if it's the empty placeholder used
+         *         before the first successful refresh
+         */
+        public boolean isLoaded() {
+            return syncedTo != null;
+        }
+
+        /**
+         * @return the version of this snapshot - a different version means the catalogue has changed
+         */
+        public long getVersion() {
+            return version;
+        }
+
+        /**
+         * @return every component in the catalogue, ordered by brand ID and serial
+         */
+        public List<BikeComponent> getComponents() {
+            return components;
+        }
+
+        /**
+         * @param type the type of component to get
+         * @return every component of that type in the catalogue, ordered by brand ID and serial
+         */
+        public List<BikeComponent> getComponents(ComponentType type) {
+            return byType.get(type);
+        }
+    }
+}
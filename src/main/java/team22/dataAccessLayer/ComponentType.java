@@ -0,0 +1,27 @@
+package team22.dataAccessLayer;
+
+/**
+ * The types of component that make up a bike. Declared in the same order as the component tables in the bike builder,
+ * so ordinal() can be used to index them
+ */
+public enum ComponentType {
+    FRAME_SET(1),
+    HANDLEBAR(1),
+    WHEEL(2);
+
+    private final int unitsPerBike;
+
+    /**
+     * @param unitsPerBike how many of this type of component go into a single bike
+     */
+    ComponentType(int unitsPerBike) {
+        this.unitsPerBike = unitsPerBike;
+    }
+
+    /**
+     * @return how many of this type of component go into a single bike
+     */
+    public int getUnitsPerBike() {
+        return unitsPerBike;
+    }
+}
@@ -0,0 +1,437 @@
+package team22.dataAccessLayer;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded pool of database connections, so that each query can reuse an already authenticated connection rather
+ * than doing a full connect + login to the server every time. Connections handed out by the pool are proxies - calling
+ * close() on them returns the underlying connection to the pool instead of closing it.
+ * Each pooled connection also keeps a StatementCache, so prepareStatement(sql) on a borrowed connection reuses a
+ * statement already prepared for the same SQL.
+ */
+class ConnectionPool {
+    private final String url;
+    private final String user;
+    private final String password;
+
+    private final int minSize;
+    private final int maxSize;
+    private final long idleTimeoutMillis;
+    private final long validationIntervalMillis;
+    private final long leakThresholdMillis;
+    private final long borrowTimeoutMillis;
+    private final int statementCacheSize;
+
+    /** Connections that are open and waiting to be borrowed, most recently returned at the head */
+    private final ArrayDeque<PooledConnection> idle = new ArrayDeque<>();
+
+    /** Connections that are currently borrowed */
+    private final Set<PooledConnection> inUse = new HashSet<>();
+
+    /** Connections that are currently being opened (counted towards maxSize) */
+    private int pending = 0;
+
+    private long borrows = 0;
+    private long creations = 0;
+    private long evictions = 0;
+    private long validationFailures = 0;
+    private long leaksDetected = 0;
+    private long timeouts = 0;
+
+    private final AtomicLong statementHits = new AtomicLong();
+    private final AtomicLong statementMisses = new AtomicLong();
+
+    private final ScheduledExecutorService housekeeper;
+
+    /**
+     * Creates a new connection pool - no connections are opened until the first one is needed
+     * @param url the JDBC url of the database
+     * @param user the username to log in with
+     * @param password the password to log in with
+     * @param minSize the number of connections to keep open even when idle
+     * @param maxSize the maximum number of connections that can be open at once
+     * @param idleTimeoutMillis how long a connection can sit idle before being closed (if above minSize)
+     * @param validationIntervalMillis how long a connection can sit idle before it is validated on borrow
+     * @param leakThresholdMillis how long a connection can be borrowed before it is reported as leaked
+     * @param borrowTimeoutMillis how long to wait for a connection when the pool is exhausted
+     * @param statementCacheSize the maximum number of prepared statements to cache per connection
+     */
+    ConnectionPool(String url, String user, String password, int minSize, int maxSize, long idleTimeoutMillis,
+                   long validationIntervalMillis, long leakThresholdMillis, long borrowTimeoutMillis,
+                   int statementCacheSize) {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.validationIntervalMillis = validationIntervalMillis;
+        this.leakThresholdMillis = leakThresholdMillis;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.statementCacheSize = statementCacheSize;
+
+        housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ConnectionPool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1000, Math.min(idleTimeoutMillis, leakThresholdMillis) / 2);
+        housekeeper.scheduleWithFixedDelay(this::housekeep, period, period, TimeUnit.MILLISECONDS);
+
+        Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown));
+    }
+
+    /**
+     * Borrows a connection from the pool, opening a new one if none are idle and the pool isn't full
+     * @return a connection which must be closed to return it to the pool
+     * @throws SQLException if a connection could not be opened, or none became free within the borrow timeout
+     */
+    Connection borrow() throws SQLException {
+        long deadline = System.currentTimeMillis() + borrowTimeoutMillis;
+
+        while (true) {
+            PooledConnection pc = null;
+            boolean create = false;
+
+            synchronized (this) {
+                while (idle.isEmpty() && inUse.size() + pending >= maxSize) {
+                    long wait = deadline - System.currentTimeMillis();
+                    if (wait <= 0) {
+                        timeouts++;
+                        throw new SQLException("Timed out waiting for a database connection (" + maxSize + " in use)");
+                    }
+                    try {
+                        wait(wait);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new SQLException("Interrupted while waiting for a database connection");
+                    }
+                }
+
+                if (!idle.isEmpty()) {
+                    pc = idle.pollFirst();
+                    inUse.add(pc);
+                } else {
+                    pending++;
+                    create = true;
+                }
+            }
+
+            if (create) {
+                try {
+                    pc = open();  // Outside the lock, as logging in can take a while
+                } finally {
+                    synchronized (this) {
+                        pending--;
+                        if (pc != null) {
+                            inUse.add(pc);
+                            borrows++;
+                        }
+                        notifyAll();
+                    }
+                }
+                return pc.checkOut();
+            }
+
+            // Idle connections may have been dropped by the server, so check them if they've been unused for a while
+            if (System.currentTimeMillis() - pc.lastReturned < validationIntervalMillis || isValid(pc)) {
+                synchronized (this) {
+                    borrows++;
+                }
+                return pc.checkOut();
+            }
+
+            synchronized (this) {
+                inUse.remove(pc);
+                validationFailures++;
+                notifyAll();
+            }
+            pc.destroy();
+        }
+    }
+
+    /**
+     * Opens a brand new physical connection - the caller must have already reserved a slot with pending++, and must
+     * release it (and account for the new connection) once this returns
+     * @return the new connection
+     * @throws SQLException if the connection could not be opened
+     */
+    private PooledConnection open() throws SQLException {
+        Properties props = new Properties();
+        props.setProperty("user", user);
+        props.setProperty("password", password);
+        // Prepare on the server, so that statements kept in the StatementCache are only parsed/planned once
+        props.setProperty("useServerPrepStmts", "true");
+        // Send batches pipelined rather than with the bulk protocol - still one round trip, but each statement reports
+        // how many rows it changed (stock adjustments rely on that to know when there wasn't enough stock)
+        props.setProperty("useBulkStmts", "false");
+
+        DriverManager.setLoginTimeout(15);
+        Connection c = DriverManager.getConnection(url, props);
+        c.setAutoCommit(false);
+        synchronized (this) {
+            creations++;
+        }
+        return new PooledConnection(c);
+    }
+
+    /**
+     * @param pc the connection to check
+     * @return true if the server still responds on this connection
+     */
+    private boolean isValid(PooledConnection pc) {
+        try {
+            return pc.physical.isValid(2);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Returns a connection to the pool, rolling back anything that was left uncommitted so that the next borrower
+     * starts with a clean transaction
+     * @param pc the connection to return
+     */
+    private void release(PooledConnection pc) {
+        boolean healthy;
+        try {
+            pc.physical.rollback();
+            pc.physical.setAutoCommit(false);
+            healthy = !pc.physical.isClosed();
+        } catch (SQLException e) {
+            healthy = false;
+        }
+
+        synchronized (this) {
+            inUse.remove(pc);
+            if (healthy) {
+                pc.lastReturned = System.currentTimeMillis();
+                idle.addFirst(pc);  // LIFO, so that rarely used connections at the tail can time out
+            }
+            notifyAll();
+        }
+
+        if (!healthy) {
+            pc.destroy();
+        }
+    }
+
+    /**
+     * Run periodically - closes connections that have been idle for too long, reports leaked connections, and opens
+     * connections until the pool is back up to its minimum size
+     */
+    private void housekeep() {
+        long now = System.currentTimeMillis();
+        ArrayList<PooledConnection> toClose = new ArrayList<>();
+        int toOpen;
+
+        synchronized (this) {
+            Iterator<PooledConnection> it = idle.descendingIterator();
+            while (it.hasNext() && idle.size() + inUse.size() > minSize) {
+                PooledConnection pc = it.next();
+                if (now - pc.lastReturned > idleTimeoutMillis) {
+                    it.remove();
+                    toClose.add(pc);
+                    evictions++;
+                }
+            }
+
+            for (PooledConnection pc : inUse) {
+                if (!pc.leakReported && now - pc.borrowedAt > leakThresholdMillis) {
+                    pc.leakReported = true;
+                    leaksDetected++;
+                    System.err.println("Possible connection leak - connection borrowed " + (now - pc.borrowedAt) +
+                                       "ms ago and never returned. Borrowed at:");
+                    pc.borrowTrace.printStackTrace(System.err);
+                }
+            }
+
+            toOpen = Math.max(0, minSize - (idle.size() + inUse.size() + pending));
+            pending += toOpen;
+        }
+
+        for (PooledConnection pc : toClose) {
+            pc.destroy();
+        }
+
+        for (int i=0; i<toOpen; i++) {
+            try {
+                PooledConnection pc = open();
+                synchronized (this) {
+                    pending--;
+                    pc.lastReturned = System.currentTimeMillis();
+                    idle.addLast(pc);
+                    notifyAll();
+                }
+            } catch (SQLException e) {
+                // Server unavailable - callers will get the error when they next try to borrow
+                synchronized (this) {
+                    pending -= toOpen - i;
+                    notifyAll();
+                }
+                break;
+            }
+        }
+    }
+
+    /**
+     * @return a snapshot of the pool's current state and counters
+     */
+    synchronized PoolStats getStats() {
+        int cachedStatements = 0;
+        for (PooledConnection pc : idle) {
+            cachedStatements += pc.statementCache.size();
+        }
+        return new PoolStats(idle.size() + inUse.size(), idle.size(), inUse.size(), maxSize, borrows, creations,
+                             evictions, validationFailures, leaksDetected, timeouts, statementHits.get(),
+                             statementMisses.get(), cachedStatements);
+    }
+
+    /**
+     * Closes all idle connections and stops the housekeeping thread
+     */
+    void shutdown() {
+        housekeeper.shutdownNow();
+        ArrayList<PooledConnection> toClose;
+        synchronized (this) {
+            toClose = new ArrayList<>(idle);
+            idle.clear();
+        }
+        for (PooledConnection pc : toClose) {
+            pc.destroy();
+        }
+    }
+
+    /**
+     * A physical connection owned by the pool, along with the bookkeeping needed to manage it
+     */
+    private class PooledConnection {
+        private final Connection physical;
+        private final StatementCache statementCache;
+        private long lastReturned = System.currentTimeMillis();
+        private long borrowedAt;
+        private Throwable borrowTrace;
+        private boolean leakReported;
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+            this.statementCache = new StatementCache(physical, statementCacheSize, statementHits, statementMisses);
+        }
+
+        /**
+         * Marks this connection as borrowed and wraps it in a new proxy for the borrower
+         * @return the proxy connection to hand out
+         */
+        Connection checkOut() {
+            Throwable trace = new Throwable("Connection borrowed by thread " + Thread.currentThread().getName());
+
+            // Under the pool lock, as housekeep reads these to look for leaks
+            synchronized (ConnectionPool.this) {
+                borrowedAt = System.currentTimeMillis();
+                borrowTrace = trace;
+                leakReported = false;
+            }
+            return (Connection) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(),
+                                                       new Class<?>[]{Connection.class}, new Handle(this));
+        }
+
+        /**
+         * Closes the physical connection for good
+         */
+        void destroy() {
+            statementCache.closeAll();
+            try {
+                physical.close();
+            } catch (SQLException e) { /* Ignored */ }
+        }
+    }
+
+    /**
+     * The proxy handler given to each borrower. Every borrow gets its own handle, so closing a handle twice (or using
+     * it after it has been closed) can never affect whoever borrows the connection next
+     */
+    private class Handle implements InvocationHandler {
+        private final PooledConnection pc;
+        private final ArrayList<Statement> statements = new ArrayList<>();
+        private boolean closed = false;
+
+        Handle(PooledConnection pc) {
+            this.pc = pc;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    close();
+                    return null;
+                case "isClosed":
+                    return closed;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled" + pc.physical;
+            }
+
+            if (closed) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+
+            Object result;
+            if (method.getName().equals("prepareStatement") && args.length == 1) {
+                result = pc.statementCache.prepare((String) args[0]);
+            } else {
+                try {
+                    result = method.invoke(pc.physical, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+
+            // Track statements so they can be closed with the connection, as they would be without pooling (cached
+            // statements go back to the cache rather than being closed)
+            if (result instanceof Statement) {
+                statements.add((Statement) result);
+            }
+            return result;
+        }
+
+        /**
+         * Closes any statements the borrower left open, then returns the connection to the pool
+         */
+        private void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+
+            for (Statement s : statements) {
+                try {
+                    s.close();
+                } catch (SQLException e) { /* Ignored */ }
+            }
+            statements.clear();
+
+            release(pc);
+        }
+    }
+}
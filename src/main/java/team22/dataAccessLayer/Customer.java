@@ -8,6 +8,7 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
 
 public class Customer {
@@ -110,29 +111,52 @@ public class Customer {
         surname = Sanitisation.sanitiseName(surname);
 
         Connection conn = null;
-        PreparedStatement ps = null;
-        ResultSet rs = null;
 
         try {
             conn = DBDriver.getConnection();
 
-            String query = "INSERT INTO Customers (addressID, forename, surname)" +
-                    "VALUES (?, ?, ?)";
+            insertCustomer(conn, addressID, forename, surname);
 
-            ps = conn.prepareStatement(query);
+            conn.commit();
+        } catch (SQLException e) {
+            e.printStackTrace();
+            OptionPanes.showErrorPane("Failed to add customer '"+ forename + " " + surname + "'", OptionPanes.RECOVERABLE);
+        } finally {
+            DBDriver.silentClose(conn);
+        }
+    }
+
+    /**
+     * Inserts a customer using an existing connection - doesn't commit, so that it can be part of a larger transaction
+     * @param conn the connection to insert the customer with
+     * @param addressID the ID of the new customer's address
+     * @param forename the new customer's (sanitised) forename
+     * @param surname the new customer's (sanitised) surname
+     * @return the ID of the new customer
+     * @throws SQLException if the customer could not be inserted
+     */
+    static int insertCustomer(Connection conn, int addressID, String forename, String surname) throws SQLException {
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+
+        String query = "INSERT INTO Customers (addressID, forename, surname)" +
+                "VALUES (?, ?, ?)";
+
+        try {
+            ps = conn.prepareStatement(query, Statement.RETURN_GENERATED_KEYS);
             ps.setInt(1, addressID);
             ps.setString(2, forename);
             ps.setString(3, surname);
             ps.executeUpdate();
 
-            conn.commit();
-        } catch (SQLException e) {
-            e.printStackTrace();
-            OptionPanes.showErrorPane("Failed to add customer '"+ forename + " " + surname + "'", OptionPanes.RECOVERABLE);
+            rs = ps.getGeneratedKeys();
+            if (!rs.next()) {
+                throw new SQLException("No ID generated for new customer");
+            }
+            return rs.getInt(1);
         } finally {
             DBDriver.silentClose(rs);
             DBDriver.silentClose(ps);
-            DBDriver.silentClose(conn);
         }
     }
 
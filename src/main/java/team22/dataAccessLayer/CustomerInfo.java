@@ -7,6 +7,7 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
 import java.util.ArrayList;
 
 public class CustomerInfo {
@@ -137,14 +138,11 @@ public class CustomerInfo {
         ResultSet rs = null;
 
         String addressExists = "SELECT addressID FROM Addresses WHERE postcode = ? AND houseNum = ?";
-        String newAddress = "INSERT INTO Addresses (addressID, postcode, houseNum, roadName, cityName) " +
-                                 "SELECT COALESCE(MAX(Addresses.addressID) + 1, 1), ?, ?, ?, ? FROM Addresses";
 
         String updateAddress = "UPDATE Addresses " +
                                  "SET postcode = ?, houseNum = ?, roadName = ?, cityName = ? " +
                                  "WHERE addressID = ?";
 
-        String getID = "SELECT addressID FROM Addresses WHERE postcode = ? AND houseNum = ?";
         String customersAtAddress = "SELECT * FROM Customers WHERE addressID = ?";
 
         boolean success = false;
@@ -170,30 +168,11 @@ public class CustomerInfo {
                     while (rs.next() && num < 2) {
                         num++;
                     }
-                    System.out.println(num);
                     if (num >= 2) {  // Multiple peope live at customer's old address, so make a new record for the new one
-                        ps = conn.prepareStatement(newAddress);
-
-                        ps.setString(1, postcode);
-                        ps.setInt(2, newHouseNum);
-                        ps.setString(3, roadName);
-                        ps.setString(4, cityName);
-
-                        // Insert address
-                        ps.executeUpdate();
-
-                        // Find new address' ID
-                        ps = conn.prepareStatement(getID);
-                        ps.setString(1, postcode);
-                        ps.setInt(2, newHouseNum);
-                        rs = ps.executeQuery();
-
-                        if (rs.next()) { // Found, move on to next step
-                            int newID = rs.getInt(1);
-                            customer.setAddressID(newID);
-                            conn.commit();
-                            success = true;
-                        }
+                        // Upsert, so if another terminal has just added this address we get its ID rather than a clash
+                        customer.setAddressID(Address.upsertAddress(conn, postcode, newHouseNum, roadName, cityName));
+                        conn.commit();
+                        success = true;
                     } else {  // Customer is only person living at this address, so just update it
                         ps = conn.prepareStatement(updateAddress);
                         ps.setString(1, postcode);
@@ -202,7 +181,15 @@ public class CustomerInfo {
                         ps.setString(4, cityName);
                         ps.setInt(5, address.getAddressID());
 
-                        ps.executeUpdate();
+                        try {
+                            ps.executeUpdate();
+                        } catch (SQLIntegrityConstraintViolationException e) {
+                            // Another terminal added this address since we checked, so move the customer to it instead
+                            if (e.getErrorCode() != Order.DUPLICATE_KEY_ERROR) {
+                                throw e;
+                            }
+                            customer.setAddressID(Address.upsertAddress(conn, postcode, newHouseNum, roadName, cityName));
+                        }
 
                         conn.commit();
                         success = true;
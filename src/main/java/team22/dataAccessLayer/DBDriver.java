@@ -14,6 +14,19 @@ public class DBDriver {
     static String USER = DBCredentials.USER;
     static String PASSWORD = DBCredentials.PASSWORD;
 
+    // Connection pool settings - a shop terminal rarely has more than a handful of queries in flight at once
+    private static final int POOL_MIN_SIZE = 2;
+    private static final int POOL_MAX_SIZE = 8;
+    private static final long POOL_IDLE_TIMEOUT = 5 * 60 * 1000;
+    private static final long POOL_VALIDATION_INTERVAL = 5 * 1000;
+    private static final long POOL_LEAK_THRESHOLD = 60 * 1000;
+    private static final long POOL_BORROW_TIMEOUT = 15 * 1000;
+    private static final int STATEMENT_CACHE_SIZE = 64;
+
+    private static final ConnectionPool POOL = new ConnectionPool(URL + DBNAME, USER, PASSWORD, POOL_MIN_SIZE,
+            POOL_MAX_SIZE, POOL_IDLE_TIMEOUT, POOL_VALIDATION_INTERVAL, POOL_LEAK_THRESHOLD, POOL_BORROW_TIMEOUT,
+            STATEMENT_CACHE_SIZE);
+
     /**
      * A helper method to insert values into a table - only used in one place (StaffMember#create) where a user has no inpu,
      * so no need to protect against SQL injection
@@ -54,15 +67,15 @@ public class DBDriver {
     }
 
     /**
-     * Attempts to create a connection to the database server - shows an error message if unsuccessful
+     * Borrows a connection to the database server from the connection pool - shows an error message if unsuccessful.
+     * Closing the connection returns it to the pool, rolling back anything that wasn't committed. Statements from
+     * conn.prepareStatement(sql) are cached per connection, so closing them hands them back for reuse
      * @return the established connection
      */
     protected static Connection getConnection() {
-        DriverManager.setLoginTimeout(15);
         Connection c;
         try {
-            c = DriverManager.getConnection(URL + DBNAME, USER, PASSWORD);
-            c.setAutoCommit(false);
+            c = POOL.borrow();
         } catch (SQLException e) {
             OptionPanes.showErrorPane("Failed to establish a connection the database. Please verify your connection to the server", OptionPanes.FATAL);
             if (!MainFrame.GUI_INITIALISED) {
@@ -73,6 +86,13 @@ public class DBDriver {
         return c;
     }
 
+    /**
+     * @return the current state of the connection pool
+     */
+    public static PoolStats getPoolStats() {
+        return POOL.getStats();
+    }
+
     /**
      * Closes a Connection
      * @param conn the Connection to close
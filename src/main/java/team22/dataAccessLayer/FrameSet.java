@@ -33,6 +33,12 @@ public class FrameSet extends BikeComponent {
         this.gears = gears;
     }
 
+    /**
+     * @return the type of component this is
+     */
+    @Override
+    public ComponentType getType() { return ComponentType.FRAME_SET; }
+
     /**
      * @return the headers that should be displayed in the frame set table in BikeBuilder
      */
@@ -40,19 +46,29 @@ public class FrameSet extends BikeComponent {
     public String[] getFieldTitles() { return new String[]{"Brand Name", "Name", "Size", "Gears", "Shocks", "Price", "Qty."}; }
 
     /**
-     * @return the values relating to the field titles for this specific frame set
+     * @return the class of the values of each field, so that numbers can be sorted as numbers (price is in pence)
+     */
+    @Override
+    public Class<?>[] getFieldClasses() {
+        return new Class<?>[]{String.class, String.class, Integer.class, Integer.class, String.class, Integer.class, Integer.class};
+    }
+
+    /**
+     * @param field the index of the field, matching getFieldTitles
+     * @return the value of that field for this specific frame set
      */
     @Override
-    public String[] getFieldValues() {
-        return new String[] {
-            getBrandName(),
-            getName(),
-            String.valueOf(size),
-            String.valueOf(gears),
-            shocks ? "Yes" : "No",
-            String.format("£%.2f", ((float) getPrice()) / 100),
-            String.valueOf(getQuantity())
-        };
+    public Object getFieldValue(int field) {
+        switch (field) {
+            case 0: return getBrandName();
+            case 1: return getName();
+            case 2: return size;
+            case 3: return gears;
+            case 4: return shocks ? "Yes" : "No";
+            case 5: return getPrice();
+            case 6: return getAvailable();  // Shoppers can only order stock that isn't reserved
+            default: return null;
+        }
     }
 
     /**
@@ -85,7 +101,7 @@ public class FrameSet extends BikeComponent {
         try {
             conn = DBDriver.getConnection();
 
-            String query1 = "INSERT INTO Components VALUES (?, ?, ?, ?, ?);";
+            String query1 = "INSERT INTO Components (brandID, serial, price, name, quantity) VALUES (?, ?, ?, ?, ?);";
             String query2 = "INSERT INTO FrameSets VALUES (?, ?, ?, ?, ?);";
 
             ps1 = conn.prepareStatement(query1);
@@ -7,15 +7,6 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 
-/**
- * The enum used to determine the handlebar style
- */
-enum HandlebarStyle {
-    STRAIGHT,
-    HIGH,
-    DROPPED
-}
-
 public class Handlebar extends BikeComponent {
 
     private HandlebarStyle handlebarStyle;
@@ -35,6 +26,12 @@ public class Handlebar extends BikeComponent {
         this.handlebarStyle = handlebarStyle;
     }
 
+    /**
+     * @return the type of component this is
+     */
+    @Override
+    public ComponentType getType() { return ComponentType.HANDLEBAR; }
+
     /**
      * Gets the field titles that should be displayed when a shopper is looking at the handlebars table
      * @return the array of field titles
@@ -43,18 +40,29 @@ public class Handlebar extends BikeComponent {
     public String[] getFieldTitles() { return new String[]{"Brand Name", "Name", "Style", "Price", "Qty."}; }
 
     /**
-     * Gets the values associated with the handlebars' field titles
-     * @return the value array
+     * Gets the class of the values of each field, so that numbers can be sorted as numbers (price is in pence)
+     * @return the array of classes
      */
     @Override
-    public String[] getFieldValues() {
-        return new String[]{
-            getBrandName(),
-            getName(),
-            handlebarStyle.name(),
-            String.format("£%.2f", ((float) getPrice()) / 100),
-            String.valueOf(getQuantity())
-        };
+    public Class<?>[] getFieldClasses() {
+        return new Class<?>[]{String.class, String.class, String.class, Integer.class, Integer.class};
+    }
+
+    /**
+     * Gets the value associated with one of the handlebars' field titles
+     * @param field the index of the field, matching getFieldTitles
+     * @return the value
+     */
+    @Override
+    public Object getFieldValue(int field) {
+        switch (field) {
+            case 0: return getBrandName();
+            case 1: return getName();
+            case 2: return handlebarStyle.name();
+            case 3: return getPrice();
+            case 4: return getAvailable();  // Shoppers can only order stock that isn't reserved
+            default: return null;
+        }
     }
 
     /**
@@ -85,7 +93,7 @@ public class Handlebar extends BikeComponent {
         try {
             conn = DBDriver.getConnection();
 
-            String query1 = "INSERT INTO Components VALUES (?, ?, ?, ?, ?);";
+            String query1 = "INSERT INTO Components (brandID, serial, price, name, quantity) VALUES (?, ?, ?, ?, ?);";
             String query2 = "INSERT INTO Handlebars VALUES (?, ?, ?);";
 
             ps1 = conn.prepareStatement(query1);
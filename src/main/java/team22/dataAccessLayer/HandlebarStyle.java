@@ -0,0 +1,10 @@
+package team22.dataAccessLayer;
+
+/**
+ * The enum used to determine the handlebar style
+ */
+enum HandlebarStyle {
+    STRAIGHT,
+    HIGH,
+    DROPPED
+}
@@ -0,0 +1,83 @@
+package team22.dataAccessLayer;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+
+/**
+ * Makes sure that each customer, address and component is only created once while loading a batch of orders - many
+ * orders share the same customer or the same components, and they can all share the same objects. Only meant to last
+ * for a single load, so that objects from different loads are never shared.
+ * Once the map holds MAX_ENTRIES objects it starts again, so that streaming an unbounded number of orders doesn't hold
+ * on to every customer seen.
+ */
+class IdentityMap {
+    private static final int MAX_ENTRIES = 10000;
+
+    private final HashMap<Integer, Customer> customers = new HashMap<>();
+    private final HashMap<Integer, Address> addresses = new HashMap<>();
+    private final HashMap<Long, BikeComponent> components = new HashMap<>();
+
+    /**
+     * @param mapper the mapper for the ResultSet
+     * @param rs the ResultSet, positioned on the row to read
+     * @return the customer in the row, reusing the one already loaded if there is one
+     * @throws SQLException if the row could not be read
+     */
+    Customer customer(RowMapper mapper, ResultSet rs) throws SQLException {
+        Customer c = customers.get(mapper.customerID(rs));
+        if (c == null) {
+            c = mapper.customer(rs);
+            customers.put(c.getCustomerID(), c);
+            checkSize();
+        }
+        return c;
+    }
+
+    /**
+     * @param mapper the mapper for the ResultSet
+     * @param rs the ResultSet, positioned on the row to read
+     * @return the address in the row, reusing the one already loaded if there is one
+     * @throws SQLException if the row could not be read
+     */
+    Address address(RowMapper mapper, ResultSet rs) throws SQLException {
+        Address a = addresses.get(mapper.addressID(rs));
+        if (a == null) {
+            a = mapper.address(rs);
+            addresses.put(a.getAddressID(), a);
+            checkSize();
+        }
+        return a;
+    }
+
+    /**
+     * @param mapper the mapper for the ResultSet
+     * @param rs the ResultSet, positioned on the row to read
+     * @return the component in the row (reusing the one already loaded if there is one), or null if the row isn't a
+     *         frame set, wheel or handlebar
+     * @throws SQLException if the row could not be read
+     */
+    BikeComponent component(RowMapper mapper, ResultSet rs) throws SQLException {
+        long key = BikeComponent.key(mapper.brandID(rs), mapper.serial(rs));
+        BikeComponent bc = components.get(key);
+        if (bc == null) {
+            bc = mapper.component(rs);
+            if (bc != null) {
+                components.put(key, bc);
+                checkSize();
+            }
+        }
+        return bc;
+    }
+
+    /**
+     * Forgets everything once the map gets too big
+     */
+    private void checkSize() {
+        if (customers.size() + addresses.size() + components.size() > MAX_ENTRIES) {
+            customers.clear();
+            addresses.clear();
+            components.clear();
+        }
+    }
+}
@@ -4,14 +4,22 @@ import team22.UI.OptionPanes;
 import team22.businessLogicLayer.Sanitisation;
 
 import java.sql.*;
-import java.security.SecureRandom;
 import java.text.ParseException;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
 
 public class Order {
 
-    // Maximum amount of order numbers in the database, maximum allowed value is 999999999
-    private static final int MAX_ORDER_NUMBERS = 999999999;
+    // How many times to try a new order number if one clashes with an order from before OrderNumberAllocator existed
+    private static final int MAX_ORDER_NUMBER_ATTEMPTS = 5;
+
+    // MariaDB error code for a duplicate primary/unique key
+    static final int DUPLICATE_KEY_ERROR = 1062;
+
+    // How many orders progressOrders handles in a single transaction, to keep its statements (and locks) a sensible size
+    private static final int MAX_ORDERS_PER_PROGRESSION = 500;
+
     private int orderNumber;
     private int customerID;
     private String datetime;
@@ -47,76 +55,137 @@ public class Order {
     }
 
     /**
-     * Generates a random, unique order number between 0 and 1000000000
-     * @return the generated order number
+     * Generates a unique serial number for a bike by taking the timestamp of serial number creation and appending
+     * the order number
+     * @param orderNumber the order number to append to the timestamp
+     * @return the generated serial number
+     */
+    private static long generateSerial(int orderNumber) {
+        long now = Math.round(System.currentTimeMillis() / 1000.0);  // Convert millisecond time to seconds
+        return Long.parseLong(String.valueOf(now) + orderNumber);
+    }
+
+    /**
+     * Adds a new order to the database
+     * @param customerID the customer who placed the order
+     * @param bikeName the name of the bike associated with this order
+     * @param frameSet the bike's frame set
+     * @param handlebar the bike's handlebars
+     * @param wheel the bike's wheels
+     * @return the order number, or -1 if there was a problem adding the order to the database
      */
-    private static int genOrderNumber() {
+    public static int addOrder(int customerID, String bikeName, FrameSet frameSet, Handlebar handlebar, Wheel wheel) {
+        Connection conn = null;
+
+        int orderNumber;
+
+        try {
+            conn = DBDriver.getConnection();
+
+            orderNumber = insertOrder(conn, customerID, bikeName, frameSet, handlebar, wheel);
+
+            conn.commit();  // Commit right at the end to ensure that the order and order components get added as one
+
+        } catch (SQLException e) {
+            OptionPanes.showErrorPane("Failed to add order to database", OptionPanes.RECOVERABLE);
+            orderNumber = -1;
+        } finally {
+            DBDriver.silentClose(conn);
+        }
+
+        return orderNumber;
+    }
+
+    /**
+     * Adds a new order for a customer who may not exist yet. The address and customer are looked up and added if
+     * needed, then the order is placed, all on one connection and in one transaction - so at most six statements, and
+     * nothing is left half-added if anything fails
+     * @param forename the customer's forename
+     * @param surname the customer's surname
+     * @param postcode the customer's postcode
+     * @param houseNum the customer's house number
+     * @param roadName the customer's road name (only used if the address is new)
+     * @param cityName the customer's city name (only used if the address is new)
+     * @param bikeName the name of the bike associated with this order
+     * @param frameSet the bike's frame set
+     * @param handlebar the bike's handlebars
+     * @param wheel the bike's wheels
+     * @return the order number, or -1 if there was a problem adding the order to the database
+     */
+    public static int addOrderNewCustomer(String forename, String surname, String postcode, int houseNum,
+                                          String roadName, String cityName, String bikeName, FrameSet frameSet,
+                                          Handlebar handlebar, Wheel wheel) {
+        forename = Sanitisation.sanitiseName(forename);
+        surname = Sanitisation.sanitiseName(surname);
+        postcode = Sanitisation.sanitisePostcode(postcode);
+
         Connection conn = null;
         PreparedStatement ps = null;
         ResultSet rs = null;
 
-        int randomInt = 0;
+        // Finds the address, and the customer living there with this name (if either exist) in one go
+        String query = "SELECT A.addressID, C.customerID " +
+                         "FROM Addresses as A " +
+                         "LEFT JOIN Customers as C on C.addressID = A.addressID and C.forename = ? and C.surname = ? " +
+                         "WHERE A.postcode = ? and A.houseNum = ? " +
+                         "ORDER BY C.customerID " +
+                         "LIMIT 1";
+
+        int orderNumber;
 
         try {
             conn = DBDriver.getConnection();
 
-            boolean stop = false;
-            SecureRandom secureRandom = new SecureRandom();
-            String query;
-            PreparedStatement preparedStatement;
-            ResultSet resultSet;
-
-            do {
-                // Generate random int for use as the order number
-                randomInt = secureRandom.nextInt(MAX_ORDER_NUMBERS);
-                query = "SELECT orderNumber FROM Orders WHERE EXISTS" +
-                        "(SELECT orderNumber FROM Orders WHERE orderNumber=?)";
-                preparedStatement = conn.prepareStatement(query);
-                preparedStatement.setInt(1, randomInt);
-                resultSet = preparedStatement.executeQuery();
-                // See if the random int is being used as a PK
-                try {
-                    resultSet.next();
-                    resultSet.getInt("orderNumber");
-                } catch (SQLException e) {
-                    stop = true;
-                }
+            ps = conn.prepareStatement(query);
+            ps.setString(1, forename);
+            ps.setString(2, surname);
+            ps.setString(3, postcode);
+            ps.setInt(4, houseNum);
+            rs = ps.executeQuery();
+
+            int addressID = 0;
+            int customerID = 0;
+            if (rs.next()) {
+                addressID = rs.getInt("addressID");
+                customerID = rs.getInt("customerID");  // 0 if there's nobody with this name at the address
             }
-            while (!stop);
+
+            if (addressID == 0) {
+                addressID = Address.upsertAddress(conn, postcode, houseNum, roadName, cityName);
+            }
+            if (customerID == 0) {
+                customerID = Customer.insertCustomer(conn, addressID, forename, surname);
+            }
+
+            orderNumber = insertOrder(conn, customerID, bikeName, frameSet, handlebar, wheel);
+
+            conn.commit();
         } catch (SQLException e) {
-            OptionPanes.showErrorPane("Failed to generate an order number", OptionPanes.RECOVERABLE);
+            OptionPanes.showErrorPane("Failed to add order to database", OptionPanes.RECOVERABLE);
+            orderNumber = -1;
         } finally {
             DBDriver.silentClose(rs);
             DBDriver.silentClose(ps);
             DBDriver.silentClose(conn);
         }
 
-        return randomInt;
-    }
-
-    /**
-     * Generates a unique serial number for a bike by taking the timestamp of serial number creation and appending
-     * the order number
-     * @param orderNumber the order number to append to the timestamp
-     * @return the generated serial number
-     */
-    private static long generateSerial(int orderNumber) {
-        long now = Math.round(System.currentTimeMillis() / 1000.0);  // Convert millisecond time to seconds
-        return Long.parseLong(String.valueOf(now) + orderNumber);
+        return orderNumber;
     }
 
     /**
-     * Adds a new order to the database
+     * Inserts an order and its components using an existing connection - doesn't commit, so that it can be part of a
+     * larger transaction
+     * @param conn the connection to insert the order with
      * @param customerID the customer who placed the order
      * @param bikeName the name of the bike associated with this order
      * @param frameSet the bike's frame set
      * @param handlebar the bike's handlebars
      * @param wheel the bike's wheels
-     * @return the order number, or -1 if there was a problem adding the order to the database
+     * @return the new order number
+     * @throws SQLException if the order could not be inserted
      */
-    public static int addOrder(int customerID, String bikeName, FrameSet frameSet, Handlebar handlebar, Wheel wheel) {
-        Connection conn = null;
-
+    private static int insertOrder(Connection conn, int customerID, String bikeName, FrameSet frameSet,
+                                   Handlebar handlebar, Wheel wheel) throws SQLException {
         PreparedStatement addOrderPS = null;
         PreparedStatement addOrderComp = null;
 
@@ -125,23 +194,33 @@ public class Order {
         // SQL Query to insert into orders
         String orderQuery = "INSERT INTO Orders (orderNumber, customerID, date, status, bikeName, bikeSerial, bikeBrand) VALUES(?, ?, NOW(), 'PENDING', ?, ?, ?);";
         // Add components to OrderComponents
-        String compQuery = "INSERT INTO OrderComponents VALUES (?, ?, ?);";
+        String compQuery = "INSERT INTO OrderComponents (orderNumber, componentBrand, componentSerial, units) VALUES (?, ?, ?, ?);";
 
         try {
-            conn = DBDriver.getConnection();
-
             addOrderPS = conn.prepareStatement(orderQuery);
             addOrderComp = conn.prepareStatement(compQuery);
 
-            orderNumber = genOrderNumber();
-            addOrderPS.setInt(1, orderNumber);
             addOrderPS.setInt(2, customerID);
             addOrderPS.setString(3, bikeName);
-            addOrderPS.setLong(4, generateSerial(orderNumber));
 
             // Determine brand based on frameset brand and wheel style (i.e. ACME Corp. Mountain)
             addOrderPS.setString(5, frameSet.getBrandName() + " " + wheel.getStyle().name());
-            addOrderPS.executeUpdate();
+
+            int attempts = 0;
+            while (true) {
+                orderNumber = OrderNumberAllocator.next();
+                addOrderPS.setInt(1, orderNumber);
+                addOrderPS.setLong(4, generateSerial(orderNumber));
+                try {
+                    addOrderPS.executeUpdate();
+                    break;
+                } catch (SQLIntegrityConstraintViolationException e) {
+                    // Older orders used random numbers, so the allocated number may already be taken - try the next one
+                    if (e.getErrorCode() != DUPLICATE_KEY_ERROR || ++attempts >= MAX_ORDER_NUMBER_ATTEMPTS) {
+                        throw e;
+                    }
+                }
+            }
 
             BikeComponent[] comps = new BikeComponent[]{frameSet, handlebar, wheel};
 
@@ -149,20 +228,14 @@ public class Order {
                 addOrderComp.setInt(1, orderNumber);
                 addOrderComp.setInt(2, c.getBrandID());
                 addOrderComp.setInt(3, c.getSerial());
+                addOrderComp.setInt(4, c.getType().getUnitsPerBike());
                 addOrderComp.addBatch();
             }
 
             addOrderComp.executeBatch();
-
-            conn.commit();  // Commit right at the end to ensure that the order and order components get added as one
-
-        } catch (SQLException e) {
-            OptionPanes.showErrorPane("Failed to add order to database", OptionPanes.RECOVERABLE);
-            orderNumber = -1;
         } finally {
             DBDriver.silentClose(addOrderPS);
             DBDriver.silentClose(addOrderComp);
-            DBDriver.silentClose(conn);
         }
 
         return orderNumber;
@@ -184,6 +257,9 @@ public class Order {
         try {
             conn = DBDriver.getConnection();
 
+            // Hand back any stock the order had reserved, as part of the same transaction as the deletion
+            OrderProgression.release(conn, orderNumber);
+
             compPS = conn.prepareStatement(compQuery);
             compPS.setInt(1, orderNumber);
             compPS.executeUpdate();
@@ -203,6 +279,86 @@ public class Order {
         }
     }
 
+    /**
+     * Moves many orders on to their next status at once - pending orders are confirmed (reserving their stock) and
+     * confirmed orders are fulfilled. Orders are progressed in batches of up to MAX_ORDERS_PER_PROGRESSION, each with a
+     * few set-based statements in a single transaction, rather than one transaction per order
+     * @param orders the orders to progress, with the status they were shown in
+     * @param progressedBy the username of the staff member progressing the orders
+     * @return the outcome for each order, keyed by order number
+     */
+    public static TreeMap<Integer, ProgressResult> progressOrders(List<Order> orders, String progressedBy) {
+        TreeMap<Integer, ProgressResult> results = new TreeMap<>();
+
+        for (int start = 0; start < orders.size(); start += MAX_ORDERS_PER_PROGRESSION) {
+            List<Order> batch = orders.subList(start, Math.min(orders.size(), start + MAX_ORDERS_PER_PROGRESSION));
+            Connection conn = null;
+
+            try {
+                conn = DBDriver.getConnection();
+                results.putAll(OrderProgression.progress(conn, batch, progressedBy));
+                conn.commit();
+            } catch (SQLException e) {
+                OptionPanes.showErrorPane("Failed to progress orders in database", OptionPanes.RECOVERABLE);
+
+                // Nothing in this batch was committed, and later batches aren't tried
+                for (Order o : orders.subList(start, orders.size())) {
+                    results.put(o.getOrderNumber(), ProgressResult.FAILED);
+                }
+                break;
+            } finally {
+                DBDriver.silentClose(conn);
+            }
+        }
+
+        return results;
+    }
+
+    /**
+     * Gets one page of orders from the Orders table alone, without their customers, addresses or components, for when
+     * only a summary of each order is needed. OrderInfo.get can load the rest of an order later
+     * @param filter the conditions orders must match to be included
+     * @param afterOrderNumber the last order number of the previous page, or -1 for the first page
+     * @param pageSize the maximum number of orders to get
+     * @return the orders on the page, in order number order - fewer than pageSize means there are no more pages
+     */
+    public static ArrayList<Order> getPage(OrderFilter filter, int afterOrderNumber, int pageSize) {
+        Connection conn = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+
+        ArrayList<Order> orders = new ArrayList<>();
+
+        String query = "SELECT * FROM Orders as O " +
+                         "WHERE O.orderNumber > ? " + filter.toSql() +
+                         "ORDER BY O.orderNumber " +
+                         "LIMIT ?";
+
+        try {
+            conn = DBDriver.getConnection();
+            ps = conn.prepareStatement(query);
+
+            ps.setInt(1, afterOrderNumber);
+            int i = filter.bind(ps, 1);
+            ps.setInt(++i, pageSize);
+
+            rs = ps.executeQuery();
+
+            RowMapper mapper = new RowMapper(rs);
+            while (rs.next()) {
+                orders.add(mapper.order(rs));
+            }
+        } catch (SQLException e) {
+            OptionPanes.showErrorPane("Failed to get orders from database", OptionPanes.RECOVERABLE);
+        } finally {
+            DBDriver.silentClose(rs);
+            DBDriver.silentClose(ps);
+            DBDriver.silentClose(conn);
+        }
+
+        return orders;
+    }
+
     /**
      * @return the order number of this Order
      */
@@ -0,0 +1,130 @@
+package team22.dataAccessLayer;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+
+/**
+ * The conditions used to choose which orders to load - each condition left as null matches every order, so a new
+ * OrderFilter matches everything. The conditions are applied by the database, so orders that don't match are never
+ * loaded
+ */
+public class OrderFilter {
+    private String status;
+    private Integer orderNumber;
+    private LocalDate placedFrom;
+    private LocalDate placedTo;
+    private String staff;
+
+    /**
+     * @param status the status of orders to match (PENDING, CONFIRMED or FULFILLED), or null for any status
+     */
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    /**
+     * @param orderNumber the order number to match, or null for any order number
+     */
+    public void setOrderNumber(Integer orderNumber) {
+        this.orderNumber = orderNumber;
+    }
+
+    /**
+     * @param placedFrom the earliest day an order can have been placed on to match (inclusive), or null for no limit
+     */
+    public void setPlacedFrom(LocalDate placedFrom) {
+        this.placedFrom = placedFrom;
+    }
+
+    /**
+     * @param placedTo the latest day an order can have been placed on to match (inclusive), or null for no limit
+     */
+    public void setPlacedTo(LocalDate placedTo) {
+        this.placedTo = placedTo;
+    }
+
+    /**
+     * @param staff the username of the staff member who last progressed the orders to match, or null for any
+     */
+    public void setStaff(String staff) {
+        this.staff = staff;
+    }
+
+    /**
+     * @return the status of orders to match, or null for any status
+     */
+    public String getStatus() { return status; }
+
+    /**
+     * @return the order number to match, or null for any order number
+     */
+    public Integer getOrderNumber() { return orderNumber; }
+
+    /**
+     * @return the earliest day an order can have been placed on to match, or null for no limit
+     */
+    public LocalDate getPlacedFrom() { return placedFrom; }
+
+    /**
+     * @return the latest day an order can have been placed on to match, or null for no limit
+     */
+    public LocalDate getPlacedTo() { return placedTo; }
+
+    /**
+     * @return the username of the staff member to match, or null for any
+     */
+    public String getStaff() { return staff; }
+
+    /**
+     * @return SQL conditions on the Orders table (aliased as O) for this filter, each starting with "AND " so they can
+     *         follow an existing WHERE clause (empty if nothing is filtered)
+     */
+    String toSql() {
+        StringBuilder sb = new StringBuilder();
+        if (status != null) {
+            sb.append("AND O.status = ? ");
+        }
+        if (orderNumber != null) {
+            sb.append("AND O.orderNumber = ? ");
+        }
+        if (placedFrom != null) {
+            sb.append("AND O.date >= ? ");
+        }
+        if (placedTo != null) {
+            sb.append("AND O.date < ? ");
+        }
+        if (staff != null) {
+            sb.append("AND O.staff = ? ");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Sets the parameters for the conditions from toSql()
+     * @param ps the statement to set parameters on
+     * @param i the number of parameters already set before the conditions
+     * @return the number of parameters set, including those set before the conditions
+     * @throws SQLException if a parameter could not be set
+     */
+    int bind(PreparedStatement ps, int i) throws SQLException {
+        if (status != null) {
+            ps.setString(++i, status);
+        }
+        if (orderNumber != null) {
+            ps.setInt(++i, orderNumber);
+        }
+        if (placedFrom != null) {
+            ps.setTimestamp(++i, Timestamp.valueOf(placedFrom.atStartOfDay()));
+        }
+        if (placedTo != null) {
+            // Compare against the start of the next day, so that orders from any time on placedTo match
+            ps.setTimestamp(++i, Timestamp.valueOf(placedTo.plusDays(1).atStartOfDay()));
+        }
+        if (staff != null) {
+            ps.setString(++i, staff);
+        }
+        return i;
+    }
+}
@@ -7,9 +7,28 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
-import java.util.Objects;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.function.Consumer;
 
 public class OrderInfo {
+
+    // Everything needed to build an OrderInfo - each order has one row per component. The Orders table is aliased as O,
+    // so it can be swapped for a subquery that only selects some orders
+    private static final String SELECT_ORDER_INFO = "SELECT O.*, C.forename, C.surname, A.*, C2.*, B.brandName, FS.gears, FS.size, FS.shocks, H.handlebarStyle, W.diameter, W.brakes, W.wheelStyle ";
+    private static final String ORDER_INFO_JOINS = "INNER JOIN Customers as C on O.customerID = C.customerID " +
+                                                   "INNER JOIN Addresses as A on C.addressID = A.addressID " +
+                                                   "INNER JOIN OrderComponents OC on O.orderNumber = OC.orderNumber " +
+                                                   "INNER JOIN Components C2 on OC.componentBrand = C2.brandID and OC.componentSerial = C2.serial " +
+                                                   "INNER JOIN Brands B on C2.brandID = B.brandID " +
+                                                   "LEFT JOIN FrameSets FS on C2.brandID = FS.brandID and C2.serial = FS.serial " +
+                                                   "LEFT JOIN Handlebars H on C2.brandID = H.brandID and C2.serial = H.serial " +
+                                                   "LEFT JOIN Wheels W on C2.brandID = W.brandID and C2.serial = W.serial ";
+
+    // How many rows to fetch from the database at once when reading lots of orders
+    private static final int FETCH_SIZE = 100;
+
     private Order order;
     private Customer customer;
     private Address address;
@@ -54,7 +73,7 @@ public class OrderInfo {
     public Address getAddress() { return address; }
 
     /**
-     * @return the BikeComponent array associated with this OrderInfo
+     * @return the components of this order, ordered by type (frame set, handlebar, wheel)
      */
     public BikeComponent[] getComponents() { return components; }
 
@@ -72,16 +91,9 @@ public class OrderInfo {
 
         // Massive SQL query with a lot of joins to avoid making queries to 8 different tables, which would slow the
         // program down massively
-        String query = "SELECT O.*, C.forename, C.surname, A.*, C2.*, B.brandName, FS.gears, FS.size, FS.shocks, H.handlebarStyle, W.diameter, W.brakes, W.wheelStyle " +
+        String query = SELECT_ORDER_INFO +
                          "FROM Orders as O " +
-                         "INNER JOIN Customers as C on O.customerID = C.customerID " +
-                         "INNER JOIN Addresses as A on C.addressID = A.addressID " +
-                         "INNER JOIN OrderComponents OC on O.orderNumber = OC.orderNumber " +
-                         "INNER JOIN Components C2 on OC.componentBrand = C2.brandID and OC.componentSerial = C2.serial " +
-                         "INNER JOIN Brands B on C2.brandID = B.brandID " +
-                         "LEFT JOIN FrameSets FS on C2.brandID = FS.brandID and C2.serial = FS.serial " +
-                         "LEFT JOIN Handlebars H on C2.brandID = H.brandID and C2.serial = H.serial " +
-                         "LEFT JOIN Wheels W on C2.brandID = W.brandID and C2.serial = W.serial " +
+                         ORDER_INFO_JOINS +
                          "WHERE O.orderNumber = ? " +
                          "ORDER BY O.orderNumber";
 
@@ -93,48 +105,7 @@ public class OrderInfo {
 
             rs = ps.executeQuery();
 
-            rs.setFetchSize(100);
-
-            BikeComponent[] comps = new BikeComponent[3];
-            Order o = null;
-            Customer c = null;
-            Address a = null;
-
-            int i = 0;  // Counter as each order will have three rows associated with it (one for each component)
-            while (rs.next()) {
-                // Get customer and address information if first row of current order
-                if (i == 0) {
-                    o = new Order(rs.getInt("orderNumber"), rs.getInt("customerID"), rs.getString("date"),
-                      rs.getString("status"), rs.getString("staff"), rs.getString("bikeName"),
-                      rs.getLong("bikeSerial"), rs.getString("bikeBrand"));
-                    c = new Customer(rs.getInt("customerID"), rs.getInt("addressID"), rs.getString("forename"), rs.getString("surname"));
-                    a = new Address(rs.getInt("addressID"), rs.getString("postcode"), rs.getInt("houseNum"), rs.getString("roadName"), rs.getString("cityName"));
-                }
-
-                int brandID = rs.getInt("brandID");
-                int serial = rs.getInt("serial");
-                String name = rs.getString("name");
-                int qty = rs.getInt("quantity");
-                int price = rs.getInt("price");
-                String brand = rs.getString("brandName");
-
-                // Figure out which component is in the current row and add to comps array
-                if (rs.getInt("size") != 0) {
-                    comps[0] = new FrameSet(brandID, serial, name, qty, price, brand, rs.getBoolean("shocks"), rs.getInt("size"), rs.getInt("gears"));
-                } else if (rs.getInt("diameter") != 0) {
-                    comps[1] = new Wheel(brandID, serial, name, qty, price, brand, rs.getInt("diameter"), WheelStyle.valueOf(rs.getString("wheelStyle")), Brakes.valueOf(rs.getString("brakes")));
-                } else if (rs.getString("handlebarStyle") != null) {
-                    comps[2] = new Handlebar(brandID, serial, name, qty, price, brand, HandlebarStyle.valueOf(rs.getString("handlebarStyle")));
-                }
-
-                i++;
-
-                // if third row of current order, create a new OrderInfo object and add it to the output array
-                if (i > 2) {
-                    infoArray[0] = new OrderInfo(o, c, a, comps.clone());
-                    i = 0;
-                }
-            }
+            readOrders(rs, oi -> infoArray[0] = oi);
         } catch (SQLException e) {
             OptionPanes.showErrorPane("Failed to get order info for '" + orderNumber + "' from database", OptionPanes.RECOVERABLE);
         } finally {
@@ -163,16 +134,9 @@ public class OrderInfo {
 
         // Massive SQL query with a lot of joins to avoid making queries to 8 different tables, which would slow the
         // program down massively
-        String query = "SELECT O.*, C.forename, C.surname, A.*, C2.*, B.brandName, FS.gears, FS.size, FS.shocks, H.handlebarStyle, W.diameter, W.brakes, W.wheelStyle " +
+        String query = SELECT_ORDER_INFO +
                          "FROM Orders as O " +
-                         "INNER JOIN Customers as C on O.customerID = C.customerID " +
-                         "INNER JOIN Addresses as A on C.addressID = A.addressID " +
-                         "INNER JOIN OrderComponents OC on O.orderNumber = OC.orderNumber " +
-                         "INNER JOIN Components C2 on OC.componentBrand = C2.brandID and OC.componentSerial = C2.serial " +
-                         "INNER JOIN Brands B on C2.brandID = B.brandID " +
-                         "LEFT JOIN FrameSets FS on C2.brandID = FS.brandID and C2.serial = FS.serial " +
-                         "LEFT JOIN Handlebars H on C2.brandID = H.brandID and C2.serial = H.serial " +
-                         "LEFT JOIN Wheels W on C2.brandID = W.brandID and C2.serial = W.serial " +
+                         ORDER_INFO_JOINS +
                          "WHERE C.forename = ? and C.surname = ? and A.houseNum = ? and A.postcode = ? " +
                          "ORDER BY O.orderNumber";
 
@@ -185,50 +149,10 @@ public class OrderInfo {
             ps.setInt(3, houseNum);
             ps.setString(4, postcode);
 
+            ps.setFetchSize(FETCH_SIZE);
             rs = ps.executeQuery();
 
-            rs.setFetchSize(100);
-
-            BikeComponent[] comps = new BikeComponent[3];
-            Order o = null;
-            Customer c = null;
-            Address a = null;
-
-            int i = 0;
-            while (rs.next()) {
-                // Get customer and address information if first row of current order
-                if (i == 0) {
-                    o = new Order(rs.getInt("orderNumber"), rs.getInt("customerID"), rs.getString("date"),
-                      rs.getString("status"), rs.getString("staff"), rs.getString("bikeName"),
-                      rs.getLong("bikeSerial"), rs.getString("bikeBrand"));
-                    c = new Customer(rs.getInt("customerID"), rs.getInt("addressID"), rs.getString("forename"), rs.getString("surname"));
-                    a = new Address(rs.getInt("addressID"), rs.getString("postcode"), rs.getInt("houseNum"), rs.getString("roadName"), rs.getString("cityName"));
-                }
-
-                int brandID = rs.getInt("brandID");
-                int serial = rs.getInt("serial");
-                String name = rs.getString("name");
-                int qty = rs.getInt("quantity");
-                int price = rs.getInt("price");
-                String brand = rs.getString("brandName");
-
-                // Figure out which component is in the current row and add to comps array
-                if (rs.getInt("size") != 0) {
-                    comps[0] = new FrameSet(brandID, serial, name, qty, price, brand, rs.getBoolean("shocks"), rs.getInt("size"), rs.getInt("gears"));
-                } else if (rs.getInt("diameter") != 0) {
-                    comps[1] = new Wheel(brandID, serial, name, qty, price, brand, rs.getInt("diameter"), WheelStyle.valueOf(rs.getString("wheelStyle")), Brakes.valueOf(rs.getString("brakes")));
-                } else if (rs.getString("handlebarStyle") != null) {
-                    comps[2] = new Handlebar(brandID, serial, name, qty, price, brand, HandlebarStyle.valueOf(rs.getString("handlebarStyle")));
-                }
-
-                i++;
-
-                // if third row of current order, create a new OrderInfo object and add it to the output array
-                if (i > 2) {
-                    infoList.add(new OrderInfo(o, c, a, comps.clone()));  // Clone comps to avoid all orders sharing a comp array
-                    i = 0;
-                }
-            }
+            readOrders(rs, infoList::add);
         } catch (SQLException e) {
             OptionPanes.showErrorPane("Failed to get order info for '" + forename + " " + surname + "' from database", OptionPanes.RECOVERABLE);
         } finally {
@@ -245,182 +169,134 @@ public class OrderInfo {
      * @return an ArrayList of OrderInfo objects
      */
     public static ArrayList<OrderInfo> getAll() {
+        ArrayList<OrderInfo> infoList = new ArrayList<>();
+        if (!forEach(new OrderFilter(), infoList::add)) {
+            OptionPanes.showErrorPane("Failed to get all orders from database", OptionPanes.RECOVERABLE);
+        }
+        return infoList;
+    }
+
+    /**
+     * Streams every order matching a filter, in order number order. Each order is built and handed over as soon as its
+     * rows have been read, and rows are fetched from the database FETCH_SIZE at a time, so any number of orders can be
+     * processed without holding them all in memory
+     * @param filter the conditions orders must match to be included
+     * @param action called with each order - shouldn't use the database on the calling thread's behalf for long, as
+     *               the connection stays borrowed until every order has been read
+     * @return true if every order was read, false if reading failed part way through
+     */
+    public static boolean forEach(OrderFilter filter, Consumer<OrderInfo> action) {
         Connection conn = null;
         PreparedStatement ps = null;
         ResultSet rs = null;
 
-        ArrayList<OrderInfo> infoList = new ArrayList<>();
+        String query = SELECT_ORDER_INFO +
+                         "FROM Orders as O " +
+                         ORDER_INFO_JOINS +
+                         "WHERE TRUE " + filter.toSql() +
+                         "ORDER BY O.orderNumber";
 
-        // Massive SQL query with a lot of joins to avoid making queries to 8 different tables, which would slow the
-        // program down massively
-        String query = "SELECT O.*, C.forename, C.surname, A.*, C2.*, B.brandName, FS.gears, FS.size, FS.shocks, H.handlebarStyle, W.diameter, W.brakes, W.wheelStyle " +
-                            "FROM Orders as O " +
-                            "INNER JOIN Customers as C on O.customerID = C.customerID " +
-                            "INNER JOIN Addresses as A on C.addressID = A.addressID " +
-                            "INNER JOIN OrderComponents OC on O.orderNumber = OC.orderNumber " +
-                            "INNER JOIN Components C2 on OC.componentBrand = C2.brandID and OC.componentSerial = C2.serial " +
-                            "INNER JOIN Brands B on C2.brandID = B.brandID " +
-                            "LEFT JOIN FrameSets FS on C2.brandID = FS.brandID and C2.serial = FS.serial " +
-                            "LEFT JOIN Handlebars H on C2.brandID = H.brandID and C2.serial = H.serial " +
-                            "LEFT JOIN Wheels W on C2.brandID = W.brandID and C2.serial = W.serial " +
-                            "ORDER BY O.orderNumber";
+        boolean success = true;
 
         try {
             conn = DBDriver.getConnection();
             ps = conn.prepareStatement(query);
-            rs = ps.executeQuery();
 
-            rs.setFetchSize(100);
-
-            BikeComponent[] comps = new BikeComponent[3];
-            Order o = null;
-            Customer c = null;
-            Address a = null;
-
-            int i = 0;
-            while (rs.next()) {
-                // Get customer and address information if first row of current order
-                if (i == 0) {
-                    o = new Order(rs.getInt("orderNumber"), rs.getInt("customerID"), rs.getString("date"),
-                      rs.getString("status"), rs.getString("staff"), rs.getString("bikeName"),
-                      rs.getLong("bikeSerial"), rs.getString("bikeBrand"));
-                    c = new Customer(rs.getInt("customerID"), rs.getInt("addressID"), rs.getString("forename"), rs.getString("surname"));
-                    a = new Address(rs.getInt("addressID"), rs.getString("postcode"), rs.getInt("houseNum"), rs.getString("roadName"), rs.getString("cityName"));
-                }
+            filter.bind(ps, 0);
 
-                int brandID = rs.getInt("brandID");
-                int serial = rs.getInt("serial");
-                String name = rs.getString("name");
-                int qty = rs.getInt("quantity");
-                int price = rs.getInt("price");
-                String brand = rs.getString("brandName");
-
-                // Figure out which component is in the current row and add to comps array
-                if (rs.getInt("size") != 0) {
-                    comps[0] = new FrameSet(brandID, serial, name, qty, price, brand, rs.getBoolean("shocks"), rs.getInt("size"), rs.getInt("gears"));
-                } else if (rs.getInt("diameter") != 0) {
-                    comps[1] = new Wheel(brandID, serial, name, qty, price, brand, rs.getInt("diameter"), WheelStyle.valueOf(rs.getString("wheelStyle")), Brakes.valueOf(rs.getString("brakes")));
-                } else if (rs.getString("handlebarStyle") != null) {
-                    comps[2] = new Handlebar(brandID, serial, name, qty, price, brand, HandlebarStyle.valueOf(rs.getString("handlebarStyle")));
-                }
-
-                i++;
+            // Must be set before executing, otherwise the driver reads the whole result into memory first
+            ps.setFetchSize(FETCH_SIZE);
+            rs = ps.executeQuery();
 
-                // if third row of current order, create a new OrderInfo object and add it to the output array
-                if (i > 2) {
-                    infoList.add(new OrderInfo(o, c, a, comps.clone()));  // Clone comps to avoid all orders sharing a comp array
-                    i = 0;
-                }
-            }
+            readOrders(rs, action);
         } catch (SQLException e) {
-            OptionPanes.showErrorPane("Failed to get all orders from database", OptionPanes.RECOVERABLE);
+            success = false;
         } finally {
             DBDriver.silentClose(rs);
             DBDriver.silentClose(ps);
             DBDriver.silentClose(conn);
         }
 
-        return infoList;
+        return success;
     }
 
     /**
-     * @return an ArrayList containing the components of which there are not enough to fulfill this OrderInfo's Order
+     * Builds OrderInfo objects from the rows of a SELECT_ORDER_INFO query. Rows must be ordered by order number, but
+     * an order can have any number of component rows
+     * @param rs the ResultSet to read from
+     * @param action called with each OrderInfo once all of its rows have been read
+     * @throws SQLException if the rows could not be read
      */
-    public ArrayList<BikeComponent> missingComps() {
-        Connection conn = null;
-        PreparedStatement ps = null;
-        ResultSet rs = null;
-
-        ArrayList<BikeComponent> insufficient = new ArrayList<>();
-
-        String query = "SELECT brandID, serial, quantity " +
-                         "FROM Components " +
-                         "WHERE (brandID = ? AND serial = ?) " +
-                                "OR (brandID = ? AND serial = ?) " +
-                                "OR (brandID = ? AND serial = ?)";
-
-        try {
-            conn = DBDriver.getConnection();
-            ps = conn.prepareStatement(query);
+    private static void readOrders(ResultSet rs, Consumer<OrderInfo> action) throws SQLException {
+        ArrayList<BikeComponent> comps = new ArrayList<>(3);
+        Order o = null;
+        Customer c = null;
+        Address a = null;
+
+        RowMapper mapper = new RowMapper(rs);
+        IdentityMap loaded = new IdentityMap();  // Orders in this load share customers, addresses and components
+        while (rs.next()) {
+            int orderNumber = mapper.orderNumber(rs);
+
+            // A new order number means every row of the previous order has been read
+            if (o == null || orderNumber != o.getOrderNumber()) {
+                if (o != null) {
+                    action.accept(new OrderInfo(o, c, a, toComponentArray(comps)));
+                    comps.clear();
+                }
 
-            int i = 0;
-            for (BikeComponent bc : components) {
-                ps.setInt(++i, bc.getBrandID());
-                ps.setInt(++i, bc.getSerial());
+                o = mapper.order(rs);
+                c = loaded.customer(mapper, rs);
+                a = loaded.address(mapper, rs);
             }
-            rs = ps.executeQuery();
 
-            while (rs.next()) {
-                int brandID = rs.getInt("brandID");
-                int serial = rs.getInt("serial");
-                int qty = rs.getInt("quantity");
-                for (BikeComponent bc : components) {
-                    if (brandID == bc.getBrandID() && serial == bc.getSerial()) {
-                        if (qty < (bc.getDisplayName().contains("Wheel") ? 2 : 1)) {
-                            insufficient.add(bc);
-                        }
-                    }
-                }
+            BikeComponent bc = loaded.component(mapper, rs);
+            if (bc != null) {
+                comps.add(bc);
             }
+        }
 
-            conn.commit();
-        } catch (SQLException e) {
-            OptionPanes.showErrorPane("Failed to get missing components in order from database", OptionPanes.RECOVERABLE);
-            insufficient = null;
-        } finally {
-            DBDriver.silentClose(rs);
-            DBDriver.silentClose(ps);
-            DBDriver.silentClose(conn);
+        if (o != null) {
+            action.accept(new OrderInfo(o, c, a, toComponentArray(comps)));
         }
-        return insufficient;
     }
 
     /**
-     * Attempts to progress the Order
+     * @param comps the components of an order, in any order
+     * @return the components in an array just big enough for them, ordered by type (frame set, handlebar, wheel)
+     */
+    private static BikeComponent[] toComponentArray(ArrayList<BikeComponent> comps) {
+        BikeComponent[] arr = comps.toArray(new BikeComponent[0]);
+        Arrays.sort(arr, Comparator.comparing(BikeComponent::getType));
+        return arr;
+    }
+
+    /**
+     * Attempts to progress the Order - confirming it reserves its components' stock, and fulfilling it takes the
+     * reserved stock out of the warehouse
      * @param progressedBy the staff member who progressed this order
-     * @return true if successfully progressed, otherwise false
+     * @return PROGRESSED if successful, otherwise why the order was left unchanged
      */
-    public boolean progressOrder(String progressedBy) {
+    public ProgressResult progressOrder(String progressedBy) {
         Connection conn = null;
-        PreparedStatement ps = null;
-
-        boolean success = true;
 
-        // Massive query again, this time with SQL logic for deciding the new status and item quantities
-        String query = "UPDATE Orders as O "+
-                         "INNER JOIN Customers as C on O.customerID = C.customerID "+
-                         "INNER JOIN Addresses as A on C.addressID = A.addressID "+
-                         "INNER JOIN OrderComponents OC on O.orderNumber = OC.orderNumber "+
-                         "INNER JOIN Components C2 on OC.componentBrand = C2.brandID and OC.componentSerial = C2.serial "+
-                         "INNER JOIN Brands B on C2.brandID = B.brandID "+
-                         "LEFT JOIN FrameSets FS on C2.brandID = FS.brandID and C2.serial = FS.serial "+
-                         "LEFT JOIN Handlebars H on C2.brandID = H.brandID and C2.serial = H.serial "+
-                         "LEFT JOIN Wheels W on C2.brandID = W.brandID and C2.serial = W.serial "+
-                         "SET "+
-                             "O.staff = ?, "+
-                             // Update status to CONFIRMED if currently PENDING, otherwise order must need fulfillment
-                             "O.status = IF(O.status='PENDING', 'CONFIRMED', 'FULFILLED'), "+
-                             // Update quantity only if going from CONFIRMED to FULFILLED, and also detect if component
-                             // is a wheel, in which case deplete quantity by 2
-                             "C2.quantity = C2.quantity - IF(O.status='CONFIRMED', IF(W.diameter IS NOT NULL, 2, 1), 0) "+
-                         "WHERE O.orderNumber = ? AND O.status != 'FULFILLED';";
+        ProgressResult result;
 
         try {
             conn = DBDriver.getConnection();
-            ps = conn.prepareStatement(query);
-            ps.setString(1, progressedBy);
-            ps.setInt(2, order.getOrderNumber());
-            ps.executeUpdate();
+            result = OrderProgression.progress(conn, Collections.singletonList(order), progressedBy).get(order.getOrderNumber());
 
-            conn.commit();
+            // Anything else is rolled back when the connection goes back to the pool
+            if (result == ProgressResult.PROGRESSED) {
+                conn.commit();
+            }
         } catch (SQLException e) {
             OptionPanes.showErrorPane("Failed to progress order in database to '" + progressedBy + "'", OptionPanes.RECOVERABLE);
-            success = false;
+            result = ProgressResult.FAILED;
         } finally {
-            DBDriver.silentClose(ps);
             DBDriver.silentClose(conn);
         }
-        return success;
+        return result;
     }
 
     /**
@@ -0,0 +1,98 @@
+package team22.dataAccessLayer;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Hands out order numbers without needing to check the Orders table for each one. Blocks of sequence values are
+ * reserved from the Sequences table in a single statement, then handed out from memory. Each sequence value is mapped
+ * to an order number with a bijection over [0, MAX_ORDER_NUMBERS), so order numbers are still unique but don't look
+ * sequential to customers.
+ */
+class OrderNumberAllocator {
+
+    // Maximum amount of order numbers in the database, maximum allowed value is 999999999
+    static final int MAX_ORDER_NUMBERS = 999999999;
+
+    // Must be coprime with MAX_ORDER_NUMBERS so that every sequence value maps to a different order number
+    private static final long MULTIPLIER = 618033989L;
+    private static final long OFFSET = 271828182L;
+
+    private static final String SEQUENCE_NAME = "orderNumber";
+    private static final int BLOCK_SIZE = 50;
+
+    // The next sequence value to hand out, and the end (exclusive) of the block it's from
+    private static long next = 0;
+    private static long blockEnd = 0;
+
+    /**
+     * @return a new order number, reserving a new block from the database first if the current one is used up
+     * @throws SQLException if a new block could not be reserved, or every order number has been used
+     */
+    static synchronized int next() throws SQLException {
+        if (next >= blockEnd) {
+            reserveBlock();
+        }
+        return scramble(next++);
+    }
+
+    /**
+     * Reserves the next BLOCK_SIZE sequence values - committed on its own connection straight away, so that a block
+     * can never be handed out twice even if the order that triggered it is rolled back
+     * @throws SQLException if the block could not be reserved
+     */
+    private static void reserveBlock() throws SQLException {
+        Connection conn = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+
+        // LAST_INSERT_ID(x) stores x for this session, so the end of the new block can be read back without a race
+        String reserve = "INSERT INTO Sequences (name, nextValue) VALUES (?, LAST_INSERT_ID(?)) " +
+                         "ON DUPLICATE KEY UPDATE nextValue = LAST_INSERT_ID(nextValue + ?)";
+        String getEnd = "SELECT LAST_INSERT_ID()";
+
+        try {
+            conn = DBDriver.getConnection();
+            if (conn == null) {
+                throw new SQLException("No connection to reserve order numbers with");
+            }
+
+            ps = conn.prepareStatement(reserve);
+            ps.setString(1, SEQUENCE_NAME);
+            ps.setInt(2, BLOCK_SIZE);
+            ps.setInt(3, BLOCK_SIZE);
+            ps.executeUpdate();
+            DBDriver.silentClose(ps);
+
+            ps = conn.prepareStatement(getEnd);
+            rs = ps.executeQuery();
+            if (!rs.next()) {
+                throw new SQLException("Failed to read reserved order number block");
+            }
+            long end = rs.getLong(1);
+
+            if (end > MAX_ORDER_NUMBERS) {
+                throw new SQLException("All order numbers have been used");
+            }
+
+            conn.commit();
+
+            next = end - BLOCK_SIZE;
+            blockEnd = end;
+        } finally {
+            DBDriver.silentClose(rs);
+            DBDriver.silentClose(ps);
+            DBDriver.silentClose(conn);
+        }
+    }
+
+    /**
+     * @param sequence the sequence value, between 0 and MAX_ORDER_NUMBERS
+     * @return the order number for that sequence value
+     */
+    private static int scramble(long sequence) {
+        return (int) ((sequence * MULTIPLIER + OFFSET) % MAX_ORDER_NUMBERS);
+    }
+}
@@ -0,0 +1,410 @@
+package team22.dataAccessLayer;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Moves orders through their statuses, keeping the stock of their components in step. Stock is reserved when an order
+ * is confirmed, so the same units can never be promised to two orders, then taken out of stock when the order is
+ * fulfilled, or handed back if a confirmed order is deleted.
+ * Any number of orders are progressed together with a handful of set-based statements: the orders are locked, then
+ * every component they use is locked, then stock is handed out to the orders oldest first, then the new stock levels
+ * and statuses are written back in one go. Only the
+ * Orders, OrderComponents and Components rows involved are touched, each by primary key, and they're always locked
+ * orders first and in primary key order - so any number of terminals can progress orders at once without table locks,
+ * and without deadlocking
+ */
+class OrderProgression {
+
+    private static final String LOCK_ORDERS = "SELECT orderNumber, status, date FROM Orders WHERE orderNumber IN (%s) ORDER BY orderNumber FOR UPDATE";
+
+    // Units are stored with each order component, so only OrderComponents is read - no joins
+    private static final String ORDER_COMPONENTS = "SELECT orderNumber, componentBrand, componentSerial, units " +
+                                                     "FROM OrderComponents " +
+                                                     "WHERE orderNumber IN (%s)";
+
+    private static final String LOCK_COMPONENTS = "SELECT brandID, serial, COALESCE(quantity, 0) AS quantity, reserved " +
+                                                    "FROM Components " +
+                                                    "WHERE %s " +
+                                                    "ORDER BY brandID, serial FOR UPDATE";
+
+    // Safe to write absolute values, as the rows have been locked since they were read
+    private static final String SET_STOCK = "UPDATE Components SET quantity = ?, reserved = ? WHERE brandID = ? AND serial = ?";
+
+    private static final String SET_STATUS = "UPDATE Orders SET status = ?, staff = ? WHERE orderNumber IN (%s)";
+
+    private static final String RELEASE = "UPDATE Components " +
+                                            "SET reserved = GREATEST(reserved - ?, 0) " +
+                                            "WHERE brandID = ? AND serial = ?";
+
+    /**
+     * Oldest first, going by when the orders were placed - order numbers are scrambled, so say nothing about age.
+     * Orders without a date go last, and ties are broken by order number so the order is always the same
+     */
+    private static final Comparator<LockedOrder> OLDEST_FIRST =
+        Comparator.comparing((LockedOrder o) -> o.date, Comparator.nullsLast(Comparator.naturalOrder()))
+                  .thenComparingInt(o -> o.orderNumber);
+
+    /**
+     * An order, as locked at the start of the progression
+     */
+    static class LockedOrder {
+        final int orderNumber;
+        final String status;
+        final Timestamp date;
+
+        LockedOrder(int orderNumber, String status, Timestamp date) {
+            this.orderNumber = orderNumber;
+            this.status = status;
+            this.date = date;
+        }
+    }
+
+    /**
+     * The stock of a component, as locked at the start of the progression
+     */
+    static class Stock {
+        final int brandID;
+        final int serial;
+        int quantity;
+        int reserved;
+        boolean changed = false;
+
+        Stock(int brandID, int serial, int quantity, int reserved) {
+            this.brandID = brandID;
+            this.serial = serial;
+            this.quantity = quantity;
+            this.reserved = reserved;
+        }
+    }
+
+    /**
+     * Moves orders on to their next status - confirming a pending order reserves its components' stock, and fulfilling
+     * a confirmed order takes the reserved stock out of the warehouse. Orders are worked through in the order they were
+     * placed, so when stock runs short the oldest orders get it. Nothing is committed
+     * @param conn the connection to use, with auto-commit off
+     * @param orders the orders to progress, with the status they were in when shown to the staff member - if an order's
+     *               status has changed since, someone else has already progressed it
+     * @param progressedBy the username of the staff member progressing the orders
+     * @return the outcome for each order (PROGRESSED, INSUFFICIENT_STOCK or ALREADY_PROGRESSED), keyed by order number
+     * @throws SQLException if the database could not be read or updated
+     */
+    static TreeMap<Integer, ProgressResult> progress(Connection conn, List<Order> orders, String progressedBy) throws SQLException {
+        TreeMap<Integer, String> expected = new TreeMap<>();
+        for (Order o : orders) {
+            expected.put(o.getOrderNumber(), o.getStatus());
+        }
+
+        TreeMap<Integer, ProgressResult> results = new TreeMap<>();
+        if (expected.isEmpty()) {
+            return results;
+        }
+
+        TreeMap<Integer, LockedOrder> current = lockOrders(conn, expected.keySet());
+        ArrayList<LockedOrder> movable = movable(expected, current, results);
+
+        ArrayList<Integer> orderNumbers = new ArrayList<>();
+        for (LockedOrder o : movable) {
+            orderNumbers.add(o.orderNumber);
+        }
+        TreeMap<Integer, ArrayList<int[]>> comps = orderComponents(conn, orderNumbers);
+        TreeMap<Long, Stock> stock = lockComponents(conn, comps.values());
+
+        ArrayList<Integer> confirmed = new ArrayList<>();
+        ArrayList<Integer> fulfilled = new ArrayList<>();
+        allocate(movable, comps, stock, results, confirmed, fulfilled);
+
+        writeStock(conn, stock.values());
+        setStatus(conn, confirmed, "CONFIRMED", progressedBy);
+        setStatus(conn, fulfilled, "FULFILLED", progressedBy);
+
+        return results;
+    }
+
+    /**
+     * Works out which orders are still in the status they were shown in, so can move on - the rest have been
+     * fulfilled, deleted or progressed by someone else in the meantime
+     * @param expected the status each order was shown in, keyed by order number
+     * @param current the orders as they are now, keyed by order number (missing if deleted)
+     * @param results where to record ALREADY_PROGRESSED for the orders that can't move on
+     * @return the orders that can move on, oldest first
+     */
+    static ArrayList<LockedOrder> movable(Map<Integer, String> expected, Map<Integer, LockedOrder> current,
+                                          Map<Integer, ProgressResult> results) {
+        ArrayList<LockedOrder> movable = new ArrayList<>();
+        for (Map.Entry<Integer, String> e : expected.entrySet()) {
+            LockedOrder o = current.get(e.getKey());
+            if (o == null || o.status == null || o.status.equals("FULFILLED") || !o.status.equals(e.getValue())) {
+                results.put(e.getKey(), ProgressResult.ALREADY_PROGRESSED);
+            } else {
+                movable.add(o);
+            }
+        }
+        movable.sort(OLDEST_FIRST);
+        return movable;
+    }
+
+    /**
+     * Hands out stock to orders in turn, so an order only gets stock if every one of its components has enough left
+     * @param movable the orders to progress, in the order they should get stock
+     * @param comps the brand ID, serial and units per bike of each order's components, keyed by order number
+     * @param stock the locked stock of every component, keyed by BikeComponent.key - updated as stock is handed out
+     * @param results where to record whether each order was PROGRESSED or had INSUFFICIENT_STOCK
+     * @param confirmed where to add the pending orders that are now confirmed
+     * @param fulfilled where to add the confirmed orders that are now fulfilled
+     */
+    static void allocate(List<LockedOrder> movable, Map<Integer, ArrayList<int[]>> comps, Map<Long, Stock> stock,
+                         Map<Integer, ProgressResult> results, List<Integer> confirmed, List<Integer> fulfilled) {
+        for (LockedOrder o : movable) {
+            int orderNumber = o.orderNumber;
+            boolean confirming = o.status.equals("PENDING");
+            ArrayList<int[]> orderComps = comps.getOrDefault(orderNumber, new ArrayList<>());
+
+            boolean enough = true;
+            for (int[] comp : orderComps) {
+                Stock s = stock.get(BikeComponent.key(comp[0], comp[1]));
+                int units = comp[2];
+                if (s == null || (confirming ? s.quantity - s.reserved < units : s.reserved < units || s.quantity < units)) {
+                    enough = false;
+                }
+            }
+            if (!enough) {
+                results.put(orderNumber, ProgressResult.INSUFFICIENT_STOCK);
+                continue;
+            }
+
+            for (int[] comp : orderComps) {
+                Stock s = stock.get(BikeComponent.key(comp[0], comp[1]));
+                int units = comp[2];
+                if (confirming) {
+                    s.reserved += units;
+                } else {
+                    s.quantity -= units;
+                    s.reserved -= units;
+                }
+                s.changed = true;
+            }
+            (confirming ? confirmed : fulfilled).add(orderNumber);
+            results.put(orderNumber, ProgressResult.PROGRESSED);
+        }
+    }
+
+    /**
+     * Hands back the stock reserved by an order, if it has been confirmed but not fulfilled - called before deleting
+     * it. Nothing is committed, so the release is committed (or rolled back) with the deletion
+     * @param conn the connection to use, with auto-commit off
+     * @param orderNumber the order that is about to be deleted
+     * @throws SQLException if the database could not be read or updated
+     */
+    static void release(Connection conn, int orderNumber) throws SQLException {
+        ArrayList<Integer> order = new ArrayList<>();
+        order.add(orderNumber);
+        LockedOrder locked = lockOrders(conn, order).get(orderNumber);
+        if (locked == null || !"CONFIRMED".equals(locked.status)) {
+            return;
+        }
+
+        ArrayList<int[]> comps = orderComponents(conn, order).getOrDefault(orderNumber, new ArrayList<>());
+        comps.sort((a, b) -> Long.compare(BikeComponent.key(a[0], a[1]), BikeComponent.key(b[0], b[1])));
+
+        PreparedStatement ps = null;
+        try {
+            ps = conn.prepareStatement(RELEASE);
+            for (int[] comp : comps) {
+                ps.setInt(1, comp[2]);
+                ps.setInt(2, comp[0]);
+                ps.setInt(3, comp[1]);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        } finally {
+            DBDriver.silentClose(ps);
+        }
+    }
+
+    /**
+     * Locks orders' rows until the end of the transaction
+     * @param conn the connection to use
+     * @param orderNumbers the orders to lock
+     * @return the current status and date of each order that exists, keyed by order number
+     * @throws SQLException if the orders could not be read
+     */
+    private static TreeMap<Integer, LockedOrder> lockOrders(Connection conn, Collection<Integer> orderNumbers) throws SQLException {
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        TreeMap<Integer, LockedOrder> orders = new TreeMap<>();
+        try {
+            ps = conn.prepareStatement(String.format(LOCK_ORDERS, placeholders(orderNumbers.size())));
+            int i = 0;
+            for (Integer orderNumber : orderNumbers) {
+                ps.setInt(++i, orderNumber);
+            }
+            rs = ps.executeQuery();
+            while (rs.next()) {
+                LockedOrder o = new LockedOrder(rs.getInt("orderNumber"), rs.getString("status"), rs.getTimestamp("date"));
+                orders.put(o.orderNumber, o);
+            }
+        } finally {
+            DBDriver.silentClose(rs);
+            DBDriver.silentClose(ps);
+        }
+        return orders;
+    }
+
+    /**
+     * @param conn the connection to use
+     * @param orderNumbers the orders to get the components of
+     * @return the brand ID, serial and units per bike of each component, keyed by order number
+     * @throws SQLException if the components could not be read
+     */
+    private static TreeMap<Integer, ArrayList<int[]>> orderComponents(Connection conn, List<Integer> orderNumbers) throws SQLException {
+        TreeMap<Integer, ArrayList<int[]>> comps = new TreeMap<>();
+        if (orderNumbers.isEmpty()) {
+            return comps;
+        }
+
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        try {
+            ps = conn.prepareStatement(String.format(ORDER_COMPONENTS, placeholders(orderNumbers.size())));
+            int i = 0;
+            for (Integer orderNumber : orderNumbers) {
+                ps.setInt(++i, orderNumber);
+            }
+            rs = ps.executeQuery();
+            while (rs.next()) {
+                comps.computeIfAbsent(rs.getInt("orderNumber"), n -> new ArrayList<>(3))
+                     .add(new int[]{rs.getInt("componentBrand"), rs.getInt("componentSerial"), rs.getInt("units")});
+            }
+        } finally {
+            DBDriver.silentClose(rs);
+            DBDriver.silentClose(ps);
+        }
+        return comps;
+    }
+
+    /**
+     * Locks the rows of every component used by some orders until the end of the transaction
+     * @param conn the connection to use
+     * @param comps the components of each order, from orderComponents
+     * @return the stock of each component, keyed by brandID/serial
+     * @throws SQLException if the components could not be read
+     */
+    private static TreeMap<Long, Stock> lockComponents(Connection conn, Collection<ArrayList<int[]>> comps) throws SQLException {
+        TreeMap<Long, int[]> keys = new TreeMap<>();
+        for (ArrayList<int[]> orderComps : comps) {
+            for (int[] comp : orderComps) {
+                keys.put(BikeComponent.key(comp[0], comp[1]), comp);
+            }
+        }
+
+        TreeMap<Long, Stock> stock = new TreeMap<>();
+        if (keys.isEmpty()) {
+            return stock;
+        }
+
+        // One (brandID, serial) condition per component
+        StringBuilder conditions = new StringBuilder("(brandID = ? AND serial = ?)");
+        for (int i = 1; i < keys.size(); i++) {
+            conditions.append(" OR (brandID = ? AND serial = ?)");
+        }
+
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        try {
+            ps = conn.prepareStatement(String.format(LOCK_COMPONENTS, conditions));
+            int i = 0;
+            for (int[] comp : keys.values()) {
+                ps.setInt(++i, comp[0]);
+                ps.setInt(++i, comp[1]);
+            }
+            rs = ps.executeQuery();
+            while (rs.next()) {
+                Stock s = new Stock(rs.getInt("brandID"), rs.getInt("serial"), rs.getInt("quantity"), rs.getInt("reserved"));
+                stock.put(BikeComponent.key(s.brandID, s.serial), s);
+            }
+        } finally {
+            DBDriver.silentClose(rs);
+            DBDriver.silentClose(ps);
+        }
+        return stock;
+    }
+
+    /**
+     * Writes back the stock of every component that changed, as a single batch
+     * @param conn the connection to use
+     * @param stock the stock of each component, in primary key order
+     * @throws SQLException if the components could not be updated
+     */
+    private static void writeStock(Connection conn, Collection<Stock> stock) throws SQLException {
+        PreparedStatement ps = null;
+        try {
+            ps = conn.prepareStatement(SET_STOCK);
+            boolean any = false;
+            for (Stock s : stock) {
+                if (s.changed) {
+                    ps.setInt(1, s.quantity);
+                    ps.setInt(2, s.reserved);
+                    ps.setInt(3, s.brandID);
+                    ps.setInt(4, s.serial);
+                    ps.addBatch();
+                    any = true;
+                }
+            }
+            if (any) {
+                ps.executeBatch();
+            }
+        } finally {
+            DBDriver.silentClose(ps);
+        }
+    }
+
+    /**
+     * Sets the status of many orders with a single statement
+     * @param conn the connection to use
+     * @param orderNumbers the orders to update
+     * @param status the new status of the orders
+     * @param progressedBy the username of the staff member progressing the orders
+     * @throws SQLException if the orders could not be updated
+     */
+    private static void setStatus(Connection conn, List<Integer> orderNumbers, String status, String progressedBy) throws SQLException {
+        if (orderNumbers.isEmpty()) {
+            return;
+        }
+
+        PreparedStatement ps = null;
+        try {
+            ps = conn.prepareStatement(String.format(SET_STATUS, placeholders(orderNumbers.size())));
+            ps.setString(1, status);
+            ps.setString(2, progressedBy);
+            int i = 2;
+            for (Integer orderNumber : orderNumbers) {
+                ps.setInt(++i, orderNumber);
+            }
+            ps.executeUpdate();
+        } finally {
+            DBDriver.silentClose(ps);
+        }
+    }
+
+    /**
+     * @param count how many placeholders are needed
+     * @return that many comma separated placeholders, for an IN list
+     */
+    private static String placeholders(int count) {
+        StringBuilder sb = new StringBuilder("?");
+        for (int i = 1; i < count; i++) {
+            sb.append(", ?");
+        }
+        return sb.toString();
+    }
+}
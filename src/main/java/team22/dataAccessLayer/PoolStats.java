@@ -0,0 +1,128 @@
+package team22.dataAccessLayer;
+
+/**
+ * A snapshot of the state of the database connection pool, used for monitoring
+ */
+public class PoolStats {
+    private final int total;
+    private final int idle;
+    private final int active;
+    private final int maxSize;
+    private final long borrows;
+    private final long creations;
+    private final long evictions;
+    private final long validationFailures;
+    private final long leaksDetected;
+    private final long timeouts;
+    private final long statementHits;
+    private final long statementMisses;
+    private final int cachedStatements;
+
+    /**
+     * @param total the number of open connections
+     * @param idle the number of open connections waiting to be borrowed
+     * @param active the number of connections currently borrowed
+     * @param maxSize the maximum number of connections the pool will open
+     * @param borrows the number of times a connection has been handed out
+     * @param creations the number of physical connections that have been opened
+     * @param evictions the number of connections closed for being idle too long
+     * @param validationFailures the number of idle connections found to be dead when borrowed
+     * @param leaksDetected the number of connections that were borrowed for longer than the leak threshold
+     * @param timeouts the number of borrows that gave up waiting for a free connection
+     * @param statementHits the number of prepared statements reused from a connection's statement cache
+     * @param statementMisses the number of prepared statements that had to be prepared from scratch
+     * @param cachedStatements the number of statements currently cached across idle connections
+     */
+    PoolStats(int total, int idle, int active, int maxSize, long borrows, long creations, long evictions,
+              long validationFailures, long leaksDetected, long timeouts, long statementHits, long statementMisses,
+              int cachedStatements) {
+        this.total = total;
+        this.idle = idle;
+        this.active = active;
+        this.maxSize = maxSize;
+        this.borrows = borrows;
+        this.creations = creations;
+        this.evictions = evictions;
+        this.validationFailures = validationFailures;
+        this.leaksDetected = leaksDetected;
+        this.timeouts = timeouts;
+        this.statementHits = statementHits;
+        this.statementMisses = statementMisses;
+        this.cachedStatements = cachedStatements;
+    }
+
+    /**
+     * @return the number of open connections
+     */
+    public int getTotal() { return total; }
+
+    /**
+     * @return the number of open connections waiting to be borrowed
+     */
+    public int getIdle() { return idle; }
+
+    /**
+     * @return the number of connections currently borrowed
+     */
+    public int getActive() { return active; }
+
+    /**
+     * @return the maximum number of connections the pool will open
+     */
+    public int getMaxSize() { return maxSize; }
+
+    /**
+     * @return the number of times a connection has been handed out
+     */
+    public long getBorrows() { return borrows; }
+
+    /**
+     * @return the number of physical connections that have been opened
+     */
+    public long getCreations() { return creations; }
+
+    /**
+     * @return the number of connections closed for being idle too long
+     */
+    public long getEvictions() { return evictions; }
+
+    /**
+     * @return the number of idle connections found to be dead when borrowed
+     */
+    public long getValidationFailures() { return validationFailures; }
+
+    /**
+     * @return the number of connections that were borrowed for longer than the leak threshold
+     */
+    public long getLeaksDetected() { return leaksDetected; }
+
+    /**
+     * @return the number of borrows that gave up waiting for a free connection
+     */
+    public long getTimeouts() { return timeouts; }
+
+    /**
+     * @return the number of prepared statements reused from a connection's statement cache
+     */
+    public long getStatementHits() { return statementHits; }
+
+    /**
+     * @return the number of prepared statements that had to be prepared from scratch
+     */
+    public long getStatementMisses() { return statementMisses; }
+
+    /**
+     * @return the number of statements currently cached across idle connections
+     */
+    public int getCachedStatements() { return cachedStatements; }
+
+    /**
+     * @return the stats on one line, for logging
+     */
+    public String toString() {
+        return "Connections: " + active + " active, " + idle + " idle, " + total + "/" + maxSize + " open | " +
+               "borrows=" + borrows + ", created=" + creations + ", evicted=" + evictions +
+               ", failedValidation=" + validationFailures + ", leaks=" + leaksDetected + ", timeouts=" + timeouts +
+               " | statements: hits=" + statementHits + ", misses=" + statementMisses + ", cached=" + cachedStatements;
+    }
+}
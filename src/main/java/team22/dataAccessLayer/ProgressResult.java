@@ -0,0 +1,18 @@
+package team22.dataAccessLayer;
+
+/**
+ * The outcome of trying to move an order on to its next status
+ */
+public enum ProgressResult {
+    /** The order moved on to its next status */
+    PROGRESSED,
+
+    /** There wasn't enough unreserved stock of one of the order's components, so the order was left unchanged */
+    INSUFFICIENT_STOCK,
+
+    /** The order had already been fulfilled, deleted, or progressed from another terminal, so was left unchanged */
+    ALREADY_PROGRESSED,
+
+    /** The database couldn't be updated, so the order was left unchanged */
+    FAILED
+}
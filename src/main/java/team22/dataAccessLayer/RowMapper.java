@@ -0,0 +1,216 @@
+package team22.dataAccessLayer;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.HashMap;
+
+/**
+ * Maps rows of the component and order queries into model objects. Looking a column up by name means a
+ * case-insensitive search of the columns on every call, so the index of every column is looked up once from the
+ * ResultSet's metadata and each row is then read by index.
+ * Columns that aren't in the ResultSet get an index of 0, so reading them throws an SQLException.
+ */
+class RowMapper {
+    // Order columns
+    private final int orderNumber;
+    private final int customerID;
+    private final int date;
+    private final int status;
+    private final int staff;
+    private final int bikeName;
+    private final int bikeSerial;
+    private final int bikeBrand;
+
+    // Customer and address columns
+    private final int forename;
+    private final int surname;
+    private final int addressID;
+    private final int postcode;
+    private final int houseNum;
+    private final int roadName;
+    private final int cityName;
+
+    // Component columns
+    private final int brandID;
+    private final int serial;
+    private final int name;
+    private final int quantity;
+    private final int reserved;
+    private final int price;
+    private final int brandName;
+    private final int lastUpdated;
+    private final int size;
+    private final int shocks;
+    private final int gears;
+    private final int diameter;
+    private final int wheelStyle;
+    private final int brakes;
+    private final int handlebarStyle;
+
+    /**
+     * @param rs the ResultSet that rows will be mapped from
+     * @throws SQLException if the ResultSet's metadata could not be read
+     */
+    RowMapper(ResultSet rs) throws SQLException {
+        ResultSetMetaData md = rs.getMetaData();
+
+        // Same as findColumn - labels are case-insensitive, and the first column with a label wins
+        HashMap<String, Integer> indices = new HashMap<>();
+        for (int i = md.getColumnCount(); i > 0; i--) {
+            indices.put(md.getColumnLabel(i).toLowerCase(), i);
+        }
+
+        orderNumber = indices.getOrDefault("ordernumber", 0);
+        customerID = indices.getOrDefault("customerid", 0);
+        date = indices.getOrDefault("date", 0);
+        status = indices.getOrDefault("status", 0);
+        staff = indices.getOrDefault("staff", 0);
+        bikeName = indices.getOrDefault("bikename", 0);
+        bikeSerial = indices.getOrDefault("bikeserial", 0);
+        bikeBrand = indices.getOrDefault("bikebrand", 0);
+
+        forename = indices.getOrDefault("forename", 0);
+        surname = indices.getOrDefault("surname", 0);
+        addressID = indices.getOrDefault("addressid", 0);
+        postcode = indices.getOrDefault("postcode", 0);
+        houseNum = indices.getOrDefault("housenum", 0);
+        roadName = indices.getOrDefault("roadname", 0);
+        cityName = indices.getOrDefault("cityname", 0);
+
+        brandID = indices.getOrDefault("brandid", 0);
+        serial = indices.getOrDefault("serial", 0);
+        name = indices.getOrDefault("name", 0);
+        quantity = indices.getOrDefault("quantity", 0);
+        reserved = indices.getOrDefault("reserved", 0);
+        price = indices.getOrDefault("price", 0);
+        brandName = indices.getOrDefault("brandname", 0);
+        lastUpdated = indices.getOrDefault("lastupdated", 0);
+        size = indices.getOrDefault("size", 0);
+        shocks = indices.getOrDefault("shocks", 0);
+        gears = indices.getOrDefault("gears", 0);
+        diameter = indices.getOrDefault("diameter", 0);
+        wheelStyle = indices.getOrDefault("wheelstyle", 0);
+        brakes = indices.getOrDefault("brakes", 0);
+        handlebarStyle = indices.getOrDefault("handlebarstyle", 0);
+    }
+
+    /**
+     * @param rs the ResultSet, positioned on the row to read
+     * @return the order number of the row
+     * @throws SQLException if the row could not be read
+     */
+    int orderNumber(ResultSet rs) throws SQLException {
+        return rs.getInt(orderNumber);
+    }
+
+    /**
+     * @param rs the ResultSet, positioned on the row to read
+     * @return the order in the row
+     * @throws SQLException if the row could not be read
+     */
+    Order order(ResultSet rs) throws SQLException {
+        return new Order(rs.getInt(orderNumber), rs.getInt(customerID), rs.getString(date), rs.getString(status),
+                         rs.getString(staff), rs.getString(bikeName), rs.getLong(bikeSerial), rs.getString(bikeBrand));
+    }
+
+    /**
+     * @param rs the ResultSet, positioned on the row to read
+     * @return the customer ID of the row
+     * @throws SQLException if the row could not be read
+     */
+    int customerID(ResultSet rs) throws SQLException {
+        return rs.getInt(customerID);
+    }
+
+    /**
+     * @param rs the ResultSet, positioned on the row to read
+     * @return the address ID of the row
+     * @throws SQLException if the row could not be read
+     */
+    int addressID(ResultSet rs) throws SQLException {
+        return rs.getInt(addressID);
+    }
+
+    /**
+     * @param rs the ResultSet, positioned on the row to read
+     * @return the customer in the row
+     * @throws SQLException if the row could not be read
+     */
+    Customer customer(ResultSet rs) throws SQLException {
+        return new Customer(rs.getInt(customerID), rs.getInt(addressID), rs.getString(forename), rs.getString(surname));
+    }
+
+    /**
+     * @param rs the ResultSet, positioned on the row to read
+     * @return the address in the row
+     * @throws SQLException if the row could not be read
+     */
+    Address address(ResultSet rs) throws SQLException {
+        return new Address(rs.getInt(addressID), rs.getString(postcode), rs.getInt(houseNum), rs.getString(roadName),
+                           rs.getString(cityName));
+    }
+
+    /**
+     * @param rs the ResultSet, positioned on the row to read
+     * @return the brand ID of the component in the row
+     * @throws SQLException if the row could not be read
+     */
+    int brandID(ResultSet rs) throws SQLException {
+        return rs.getInt(brandID);
+    }
+
+    /**
+     * @param rs the ResultSet, positioned on the row to read
+     * @return the serial of the component in the row
+     * @throws SQLException if the row could not be read
+     */
+    int serial(ResultSet rs) throws SQLException {
+        return rs.getInt(serial);
+    }
+
+    /**
+     * @param rs the ResultSet, positioned on the row to read
+     * @return when the component in the row was last updated
+     * @throws SQLException if the row could not be read
+     */
+    Timestamp lastUpdated(ResultSet rs) throws SQLException {
+        return rs.getTimestamp(lastUpdated);
+    }
+
+    /**
+     * Creates the right type of component from the row
+     * @param rs the ResultSet, positioned on the row to read
+     * @return the component, or null if the row isn't a frame set, wheel or handlebar
+     * @throws SQLException if the row could not be read
+     */
+    BikeComponent component(ResultSet rs) throws SQLException {
+        int brandID = rs.getInt(this.brandID);
+        int serial = rs.getInt(this.serial);
+        String name = rs.getString(this.name);
+        int qty = rs.getInt(quantity);
+        int price = rs.getInt(this.price);
+        String brand = rs.getString(brandName);
+
+        // Decide which type of component each row is based on columns that are unique - this is so that we can
+        // use the getDisplayName and getFieldValue methods of their respective classes.
+        BikeComponent bc = null;
+        int size = rs.getInt(this.size);
+        int diameter = rs.getInt(this.diameter);
+        String handlebarStyle = rs.getString(this.handlebarStyle);
+        if (size != 0) {
+            bc = new FrameSet(brandID, serial, name, qty, price, brand, rs.getBoolean(shocks), size, rs.getInt(gears));
+        } else if (diameter != 0) {
+            bc = new Wheel(brandID, serial, name, qty, price, brand, diameter, WheelStyle.valueOf(rs.getString(wheelStyle)), Brakes.valueOf(rs.getString(brakes)));
+        } else if (handlebarStyle != null) {
+            bc = new Handlebar(brandID, serial, name, qty, price, brand, HandlebarStyle.valueOf(handlebarStyle));
+        }
+
+        // Not every query that reads components selects the reserved column
+        if (bc != null && reserved != 0) {
+            bc.setReserved(rs.getInt(reserved));
+        }
+        return bc;
+    }
+}
@@ -0,0 +1,205 @@
+package team22.dataAccessLayer;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An LRU cache of prepared statements for a single pooled connection, keyed by SQL text. Statements handed out by the
+ * cache are proxies - calling close() on them resets the statement and hands it back to the cache, so the next caller
+ * preparing the same SQL on this connection skips the parse/plan step.
+ * Only ever used by whoever has the connection borrowed, so it isn't thread safe.
+ */
+class StatementCache {
+    private final Connection physical;
+    private final int maxSize;
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+
+    private final LinkedHashMap<String, CachedStatement> statements;
+
+    /**
+     * @param physical the connection that statements are prepared on
+     * @param maxSize the maximum number of statements to keep prepared
+     * @param hits the counter to increment when a statement is reused (shared by the whole pool)
+     * @param misses the counter to increment when a statement has to be prepared (shared by the whole pool)
+     */
+    StatementCache(Connection physical, int maxSize, AtomicLong hits, AtomicLong misses) {
+        this.physical = physical;
+        this.maxSize = maxSize;
+        this.hits = hits;
+        this.misses = misses;
+
+        statements = new LinkedHashMap<String, CachedStatement>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+                if (size() <= StatementCache.this.maxSize) {
+                    return false;
+                }
+                // A statement that's still checked out gets closed when it is returned instead
+                eldest.getValue().evicted = true;
+                if (!eldest.getValue().inUse) {
+                    eldest.getValue().physicalClose();
+                }
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Gets a prepared statement for some SQL, reusing a cached one if possible. If the cached statement for this SQL
+     * is already in use (i.e. the same query is open twice at once), a separate statement is prepared instead
+     * @param sql the SQL to prepare
+     * @return a statement which should be closed once finished with
+     * @throws SQLException if the statement could not be prepared
+     */
+    PreparedStatement prepare(String sql) throws SQLException {
+        CachedStatement cs = statements.get(sql);
+
+        if (cs != null && !cs.inUse) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+            cs = new CachedStatement(physical.prepareStatement(sql));
+            if (!statements.containsKey(sql)) {
+                statements.put(sql, cs);
+            } else {
+                cs.evicted = true;  // Duplicate of a statement in use, so don't keep it
+            }
+        }
+
+        cs.inUse = true;
+        return cs.checkOut();
+    }
+
+    /**
+     * @return the number of statements currently cached
+     */
+    int size() {
+        return statements.size();
+    }
+
+    /**
+     * Closes every cached statement, for when the connection itself is being closed
+     */
+    void closeAll() {
+        for (CachedStatement cs : statements.values()) {
+            cs.physicalClose();
+        }
+        statements.clear();
+    }
+
+    /**
+     * A prepared statement owned by the cache
+     */
+    private class CachedStatement {
+        private final PreparedStatement ps;
+        private final ArrayList<ResultSet> results = new ArrayList<>();
+        private boolean inUse = false;
+        private boolean evicted = false;
+
+        CachedStatement(PreparedStatement ps) {
+            this.ps = ps;
+        }
+
+        /**
+         * @return a proxy of the statement for one caller to use
+         */
+        PreparedStatement checkOut() {
+            return (PreparedStatement) Proxy.newProxyInstance(StatementCache.class.getClassLoader(),
+                                                              new Class<?>[]{PreparedStatement.class}, new Handle(this));
+        }
+
+        /**
+         * Resets any state a caller may have left on the statement, and makes it available again
+         */
+        void checkIn() {
+            inUse = false;
+
+            for (ResultSet rs : results) {
+                DBDriver.silentClose(rs);
+            }
+            results.clear();
+
+            if (evicted) {
+                physicalClose();
+                return;
+            }
+
+            try {
+                ps.clearParameters();
+                ps.clearBatch();
+                ps.setFetchSize(0);
+            } catch (SQLException e) {
+                // Statement is unusable, so drop it from the cache
+                evicted = true;
+                statements.values().remove(this);
+                physicalClose();
+            }
+        }
+
+        /**
+         * Actually closes the underlying statement
+         */
+        void physicalClose() {
+            DBDriver.silentClose(ps);
+        }
+    }
+
+    /**
+     * The proxy handler given to each caller, so that a statement closed twice can't be returned to the cache twice
+     */
+    private class Handle implements InvocationHandler {
+        private final CachedStatement cs;
+        private boolean closed = false;
+
+        Handle(CachedStatement cs) {
+            this.cs = cs;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        cs.checkIn();
+                    }
+                    return null;
+                case "isClosed":
+                    return closed;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Cached" + cs.ps;
+            }
+
+            if (closed) {
+                throw new SQLException("Statement has already been closed");
+            }
+
+            Object result;
+            try {
+                result = method.invoke(cs.ps, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+
+            if (result instanceof ResultSet) {
+                cs.results.add((ResultSet) result);
+            }
+            return result;
+        }
+    }
+}
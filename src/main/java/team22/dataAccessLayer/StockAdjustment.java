@@ -0,0 +1,43 @@
+package team22.dataAccessLayer;
+
+/**
+ * A change to the stock of one component, relative to however much is in stock when it's applied - so that adjustments
+ * made from different terminals add up, rather than one overwriting the other
+ */
+public class StockAdjustment {
+    private final int brandID;
+    private final int serial;
+    private final int change;
+
+    /**
+     * @param brandID the brand ID of the component
+     * @param serial the serial of the component
+     * @param change how much to add to the stock (negative to remove stock)
+     */
+    public StockAdjustment(int brandID, int serial, int change) {
+        this.brandID = brandID;
+        this.serial = serial;
+        this.change = change;
+    }
+
+    /**
+     * @return the brand ID of the component
+     */
+    public int getBrandID() {
+        return brandID;
+    }
+
+    /**
+     * @return the serial of the component
+     */
+    public int getSerial() {
+        return serial;
+    }
+
+    /**
+     * @return how much to add to the stock (negative to remove stock)
+     */
+    public int getChange() {
+        return change;
+    }
+}
@@ -7,23 +7,6 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 
-/**
- * The enum representing the wheelStyle column in the database
- */
-enum WheelStyle {
-    ROAD,
-    MOUNTAIN,
-    HYBRID
-}
-
-/**
- * The enum representing the brakes column in the database
- */
-enum Brakes {
-    RIM,
-    DISK
-}
-
 public class Wheel extends BikeComponent {
 
     private int diameter;
@@ -53,6 +36,12 @@ public class Wheel extends BikeComponent {
         return wheelStyle;
     }
 
+    /**
+     * @return the type of component this is
+     */
+    @Override
+    public ComponentType getType() { return ComponentType.WHEEL; }
+
     /**
      * Gets the field titles that should be shown as table headers when a shopper is looking at the wheels table in BikeBuilder
      * @return the String array of titles
@@ -61,20 +50,31 @@ public class Wheel extends BikeComponent {
     public String[] getFieldTitles() { return new String[]{"Brand Name", "Name", "Diameter", "Style", "Brakes", "Price", "Qty."}; }
 
     /**
-     * Gets the Wheel's values associated with the field titles
-     * @return the String array of values
+     * Gets the class of the values of each field, so that numbers can be sorted as numbers (price is in pence)
+     * @return the array of classes
      */
     @Override
-    public String[] getFieldValues() {
-        return new String[] {
-            getBrandName(),
-            getName(),
-            String.valueOf(diameter),
-            wheelStyle.name(),
-            brakes.name(),
-            String.format("£%.2f", ((float) getPrice()) / 100),
-            String.valueOf(getQuantity())
-        };
+    public Class<?>[] getFieldClasses() {
+        return new Class<?>[]{String.class, String.class, Integer.class, String.class, String.class, Integer.class, Integer.class};
+    }
+
+    /**
+     * Gets the Wheel's value associated with one of the field titles
+     * @param field the index of the field, matching getFieldTitles
+     * @return the value
+     */
+    @Override
+    public Object getFieldValue(int field) {
+        switch (field) {
+            case 0: return getBrandName();
+            case 1: return getName();
+            case 2: return diameter;
+            case 3: return wheelStyle.name();
+            case 4: return brakes.name();
+            case 5: return getPrice();
+            case 6: return getAvailable();  // Shoppers can only order stock that isn't reserved
+            default: return null;
+        }
     }
 
     /**
@@ -107,7 +107,7 @@ public class Wheel extends BikeComponent {
         try {
             conn = DBDriver.getConnection();
 
-            String query1 = "INSERT INTO Components VALUES (?, ?, ?, ?, ?);";
+            String query1 = "INSERT INTO Components (brandID, serial, price, name, quantity) VALUES (?, ?, ?, ?, ?);";
             String query2 = "INSERT INTO Wheels VALUES (?, ?, ?, ?, ?);";
 
             ps1 = conn.prepareStatement(query1);
@@ -0,0 +1,10 @@
+package team22.dataAccessLayer;
+
+/**
+ * The enum representing the wheelStyle column in the database
+ */
+enum WheelStyle {
+    ROAD,
+    MOUNTAIN,
+    HYBRID
+}
@@ -0,0 +1,99 @@
+package team22.UI;
+
+import org.junit.Test;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.util.BitSet;
+
+import static org.junit.Assert.*;
+
+public class ColumnSizerTest {
+
+    /**
+     * A single column table model with one long value, which counts how many values have been read
+     */
+    private static class CountingModel extends AbstractTableModel {
+        private final int rows;
+        private final int longRow;
+        private int reads = 0;
+
+        CountingModel(int rows, int longRow) {
+            this.rows = rows;
+            this.longRow = longRow;
+        }
+
+        @Override
+        public int getRowCount() { return rows; }
+
+        @Override
+        public int getColumnCount() { return 1; }
+
+        @Override
+        public Object getValueAt(int row, int col) {
+            reads++;
+            return row == longRow ? "a much, much longer value than the rest" : "row " + (row % 100);
+        }
+    }
+
+    @Test
+    public void smallTablesSampleEveryRow() {
+        int rowCount = ColumnSizer.EDGE_ROWS * 2 + ColumnSizer.RANDOM_ROWS;
+        BitSet rows = ColumnSizer.sampleRows(rowCount);
+
+        assertEquals(rowCount, rows.cardinality());
+        assertEquals(rowCount, rows.length());
+    }
+
+    @Test
+    public void largeTablesSampleEdgesAndABoundedNumberOfOthers() {
+        int rowCount = 100000;
+        BitSet rows = ColumnSizer.sampleRows(rowCount);
+
+        for (int i = 0; i < ColumnSizer.EDGE_ROWS; i++) {
+            assertTrue("first rows are sampled", rows.get(i));
+            assertTrue("last rows are sampled", rows.get(rowCount - 1 - i));
+        }
+        assertTrue(rows.cardinality() <= ColumnSizer.EDGE_ROWS * 2 + ColumnSizer.RANDOM_ROWS);
+        assertTrue(rows.cardinality() > ColumnSizer.EDGE_ROWS * 2);
+        assertTrue(rows.length() <= rowCount);
+    }
+
+    @Test
+    public void sampleIsTheSameForTheSameTableSize() {
+        assertEquals(ColumnSizer.sampleRows(5000), ColumnSizer.sampleRows(5000));
+    }
+
+    @Test
+    public void longestRowsFindsTheLongestValueFirst() {
+        JTable table = new JTable(new CountingModel(500, 321));
+
+        int[] longest = ColumnSizer.longestRows(table, 0, table.getRowCount());
+
+        assertEquals(ColumnSizer.LONGEST_ROWS, longest.length);
+        assertEquals(321, longest[0]);
+    }
+
+    @Test
+    public void longestRowsHandlesTablesShorterThanTheList() {
+        JTable table = new JTable(new CountingModel(2, 1));
+
+        int[] longest = ColumnSizer.longestRows(table, 0, table.getRowCount());
+
+        assertArrayEquals(new int[]{1, 0}, longest);
+    }
+
+    @Test
+    public void longestRowsScansAtMostTheCap() {
+        // Just over the cap, which is where rounding the step down would read every row
+        for (int rowCount : new int[]{ColumnSizer.MAX_SCANNED_ROWS, ColumnSizer.MAX_SCANNED_ROWS + 5000, 123456}) {
+            CountingModel model = new CountingModel(rowCount, -1);
+            JTable table = new JTable(model);
+            model.reads = 0;
+
+            ColumnSizer.longestRows(table, 0, rowCount);
+
+            assertTrue(rowCount + " rows read " + model.reads, model.reads <= ColumnSizer.MAX_SCANNED_ROWS);
+        }
+    }
+}
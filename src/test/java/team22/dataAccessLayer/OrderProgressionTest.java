@@ -0,0 +1,137 @@
+package team22.dataAccessLayer;
+
+import org.junit.Test;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+public class OrderProgressionTest {
+
+    private static final int FRAME_BRAND = 1;
+    private static final int FRAME_SERIAL = 100;
+    private static final int WHEEL_BRAND = 2;
+    private static final int WHEEL_SERIAL = 200;
+
+    private final TreeMap<Integer, String> expected = new TreeMap<>();
+    private final TreeMap<Integer, OrderProgression.LockedOrder> current = new TreeMap<>();
+    private final TreeMap<Integer, ArrayList<int[]>> comps = new TreeMap<>();
+    private final TreeMap<Long, OrderProgression.Stock> stock = new TreeMap<>();
+
+    private final TreeMap<Integer, ProgressResult> results = new TreeMap<>();
+    private final List<Integer> confirmed = new ArrayList<>();
+    private final List<Integer> fulfilled = new ArrayList<>();
+
+    /**
+     * Adds an order, as shown to the staff member and as currently in the database, using one frame set and two wheels
+     */
+    private void order(int orderNumber, String shownStatus, String currentStatus, String date) {
+        expected.put(orderNumber, shownStatus);
+        if (currentStatus != null) {
+            current.put(orderNumber, new OrderProgression.LockedOrder(orderNumber, currentStatus, Timestamp.valueOf(date)));
+        }
+        comps.put(orderNumber, new ArrayList<>(Arrays.asList(
+            new int[]{FRAME_BRAND, FRAME_SERIAL, 1},
+            new int[]{WHEEL_BRAND, WHEEL_SERIAL, 2})));
+    }
+
+    private OrderProgression.Stock stock(int brandID, int serial, int quantity, int reserved) {
+        OrderProgression.Stock s = new OrderProgression.Stock(brandID, serial, quantity, reserved);
+        stock.put(BikeComponent.key(brandID, serial), s);
+        return s;
+    }
+
+    /**
+     * Runs the same steps as OrderProgression.progress, without the database
+     */
+    private void progress() {
+        ArrayList<OrderProgression.LockedOrder> movable = OrderProgression.movable(expected, current, results);
+        OrderProgression.allocate(movable, comps, stock, results, confirmed, fulfilled);
+    }
+
+    @Test
+    public void earlierOrderGetsStockWhenThereIsOnlyEnoughForOne() {
+        // Order numbers are scrambled, so the older order can have the higher number
+        order(900, "PENDING", "PENDING", "2022-12-01 09:00:00");
+        order(100, "PENDING", "PENDING", "2022-12-02 09:00:00");
+        stock(FRAME_BRAND, FRAME_SERIAL, 1, 0);
+        stock(WHEEL_BRAND, WHEEL_SERIAL, 2, 0);
+
+        progress();
+
+        assertEquals(ProgressResult.PROGRESSED, results.get(900));
+        assertEquals(ProgressResult.INSUFFICIENT_STOCK, results.get(100));
+        assertEquals(Arrays.asList(900), confirmed);
+    }
+
+    @Test
+    public void sameDateFallsBackToOrderNumber() {
+        order(900, "PENDING", "PENDING", "2022-12-01 09:00:00");
+        order(100, "PENDING", "PENDING", "2022-12-01 09:00:00");
+        stock(FRAME_BRAND, FRAME_SERIAL, 1, 0);
+        stock(WHEEL_BRAND, WHEEL_SERIAL, 2, 0);
+
+        progress();
+
+        assertEquals(ProgressResult.PROGRESSED, results.get(100));
+        assertEquals(ProgressResult.INSUFFICIENT_STOCK, results.get(900));
+    }
+
+    @Test
+    public void mixedBatchGetsAnOutcomeForEveryOrder() {
+        order(1, "PENDING", "PENDING", "2022-12-01 09:00:00");      // Enough stock
+        order(2, "PENDING", "PENDING", "2022-12-02 09:00:00");      // Stock all reserved by order 1
+        order(3, "PENDING", "CONFIRMED", "2022-12-03 09:00:00");    // Confirmed from another terminal
+        order(4, "CONFIRMED", "FULFILLED", "2022-12-04 09:00:00");  // Fulfilled from another terminal
+        order(5, "PENDING", null, null);                            // Deleted
+        order(6, "CONFIRMED", "CONFIRMED", "2022-11-30 09:00:00");  // Fulfilled from its own reservation
+        OrderProgression.Stock frames = stock(FRAME_BRAND, FRAME_SERIAL, 3, 1);
+        OrderProgression.Stock wheels = stock(WHEEL_BRAND, WHEEL_SERIAL, 5, 2);
+
+        progress();
+
+        assertEquals(ProgressResult.PROGRESSED, results.get(1));
+        assertEquals(ProgressResult.INSUFFICIENT_STOCK, results.get(2));
+        assertEquals(ProgressResult.ALREADY_PROGRESSED, results.get(3));
+        assertEquals(ProgressResult.ALREADY_PROGRESSED, results.get(4));
+        assertEquals(ProgressResult.ALREADY_PROGRESSED, results.get(5));
+        assertEquals(ProgressResult.PROGRESSED, results.get(6));
+        assertEquals(Arrays.asList(1), confirmed);
+        assertEquals(Arrays.asList(6), fulfilled);
+
+        // Order 6 took its reserved frame and wheels out of stock, then order 1 reserved one frame and two wheels
+        assertEquals(2, frames.quantity);
+        assertEquals(1, frames.reserved);
+        assertEquals(3, wheels.quantity);
+        assertEquals(2, wheels.reserved);
+        assertTrue(frames.changed && wheels.changed);
+    }
+
+    @Test
+    public void fulfillingNeedsReservedStock() {
+        order(1, "CONFIRMED", "CONFIRMED", "2022-12-01 09:00:00");
+        OrderProgression.Stock frames = stock(FRAME_BRAND, FRAME_SERIAL, 10, 0);
+        OrderProgression.Stock wheels = stock(WHEEL_BRAND, WHEEL_SERIAL, 10, 0);
+
+        progress();
+
+        assertEquals(ProgressResult.INSUFFICIENT_STOCK, results.get(1));
+        assertTrue(fulfilled.isEmpty());
+        assertFalse(frames.changed || wheels.changed);
+    }
+
+    @Test
+    public void wheelsNeedTwoUnits() {
+        order(1, "PENDING", "PENDING", "2022-12-01 09:00:00");
+        stock(FRAME_BRAND, FRAME_SERIAL, 1, 0);
+        stock(WHEEL_BRAND, WHEEL_SERIAL, 1, 0);
+
+        progress();
+
+        assertEquals(ProgressResult.INSUFFICIENT_STOCK, results.get(1));
+    }
+}